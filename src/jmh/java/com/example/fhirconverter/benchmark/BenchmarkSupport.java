@@ -0,0 +1,73 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.FhirConverterApplication;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Shared setup for the JMH benchmarks: boots the application without a web server and
+ * loads the request fixtures from {@code resources/examples}.
+ */
+final class BenchmarkSupport {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * @param properties extra {@code --name=value} arguments, e.g. to switch a feature on
+     */
+    static ConfigurableApplicationContext startApplication(String... properties) {
+        return new SpringApplicationBuilder(FhirConverterApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(arguments(properties));
+    }
+
+    /**
+     * Starts the application with its embedded web server on a random port, available as
+     * {@code local.server.port}.
+     */
+    static ConfigurableApplicationContext startWebApplication(String... properties) {
+        String[] withPort = Arrays.copyOf(properties, properties.length + 1);
+        withPort[properties.length] = "--server.port=0";
+        return new SpringApplicationBuilder(FhirConverterApplication.class)
+            .web(WebApplicationType.SERVLET)
+            .run(arguments(withPort));
+    }
+
+    private static String[] arguments(String... properties) {
+        // Passed as arguments so they take precedence over application.yml
+        String[] args = new String[3 + properties.length];
+        args[0] = "--logging.level.root=WARN";
+        args[1] = "--logging.level.com.example.fhirconverter=WARN";
+        args[2] = "--spring.main.banner-mode=off";
+        System.arraycopy(properties, 0, args, 3, properties.length);
+        return args;
+    }
+
+    static byte[] exampleBytes(String name) {
+        try (InputStream is = new ClassPathResource("examples/" + name + ".json").getInputStream()) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load example " + name, e);
+        }
+    }
+
+    static ConversionRequest loadExample(String name) {
+        try (InputStream is = new ClassPathResource("examples/" + name + ".json").getInputStream()) {
+            return OBJECT_MAPPER.readValue(is, ConversionRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load example " + name, e);
+        }
+    }
+}
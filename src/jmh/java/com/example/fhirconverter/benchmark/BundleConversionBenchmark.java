@@ -0,0 +1,91 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.service.ConversionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Large transaction Bundles through {@code bundle.liquid} versus parallel per-entry assembly.
+ * Entries are copies of those in {@code bundle-transaction.json} with distinct ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class BundleConversionBenchmark {
+
+    private static final List<String> ID_KEYS = List.of(
+        "patient_id", "observation_id", "encounter_id", "medication_request_id");
+
+    @Param({"100", "1000"})
+    private int entries;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private ConfigurableApplicationContext context;
+    private ConversionService conversionService;
+    private ConversionRequest request;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        conversionService = context.getBean(ConversionService.class);
+
+        request = BenchmarkSupport.loadExample("bundle-transaction");
+        List<Map<String, Object>> template = (List<Map<String, Object>>) request.getInputData().get("entries");
+        List<Map<String, Object>> generated = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            Map<String, Object> entry = new LinkedHashMap<>(template.get(i % template.size()));
+            for (String key : ID_KEYS) {
+                entry.computeIfPresent(key, (k, id) -> id + "-" + generated.size());
+            }
+            entry.computeIfPresent("fullUrl", (k, url) -> url + "-" + generated.size());
+            generated.add(entry);
+        }
+
+        Map<String, Object> inputData = new LinkedHashMap<>(request.getInputData());
+        inputData.put("entries", generated);
+        request.setInputData(inputData);
+        request.setValidate(false);
+        request.setParallel(parallel);
+
+        ConversionResponse response = conversionService.convert(request);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Bundle does not convert: " + response.getErrors());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ConversionResponse convert() {
+        return conversionService.convert(request);
+    }
+}
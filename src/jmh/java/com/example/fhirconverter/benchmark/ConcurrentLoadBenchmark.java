@@ -0,0 +1,87 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.model.ConversionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of {@code POST /api/v1/convert} over HTTP with 400 concurrent clients, twice the
+ * default Tomcat request thread pool, on platform and on virtual request threads. Sample time
+ * mode reports the latency distribution; throughput is clients divided by mean latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(400)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g", "-Djdk.tracePinnedThreads=short"})
+public class ConcurrentLoadBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"patient:patient-complex"})
+    private String fixture;
+
+    @Param({"false", "true"})
+    private boolean validate;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkSupport.startWebApplication(
+            "--spring.threads.virtual.enabled=" + virtualThreads,
+            "--fhir.converter.warmup.enabled=false");
+        String port = context.getEnvironment().getProperty("local.server.port");
+
+        ConversionRequest conversion = BenchmarkSupport.loadExample(fixture.split(":")[1]);
+        conversion.setValidate(validate);
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/convert"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(new ObjectMapper().writeValueAsString(conversion)))
+            .build();
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int convert() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Conversion failed with status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
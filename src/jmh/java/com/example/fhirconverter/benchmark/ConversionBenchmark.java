@@ -0,0 +1,85 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.service.ConversionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ConversionService#convert} latency with and without the HAPI
+ * parse/re-encode round trip ({@code normalize}), and including reading the request JSON
+ * ({@code readAndConvert}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ConversionBenchmark {
+
+    @Param({"patient-with-filters", "patient-complex", "observation-blood-pressure", "bundle-transaction"})
+    private String example;
+
+    @Param({"true", "false"})
+    private boolean normalize;
+
+    private ConfigurableApplicationContext context;
+    private ConversionService conversionService;
+    private ConversionRequest request;
+    private ObjectMapper objectMapper;
+    private byte[] requestJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        conversionService = context.getBean(ConversionService.class);
+
+        request = BenchmarkSupport.loadExample(example);
+        request.setValidate(false);
+        request.setNormalize(normalize);
+
+        objectMapper = context.getBean(ObjectMapper.class);
+        requestJson = BenchmarkSupport.exampleBytes(example);
+
+        ConversionResponse response = conversionService.convert(request);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Example " + example + " does not convert: " + response.getErrors());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ConversionResponse convert() {
+        return conversionService.convert(request);
+    }
+
+    @Benchmark
+    public ConversionResponse readAndConvert() throws IOException {
+        ConversionRequest read = objectMapper.readValue(requestJson, ConversionRequest.class);
+        read.setValidate(false);
+        read.setNormalize(normalize);
+        return conversionService.convert(read);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.filters.FhirDateFilter;
+import liqp.filters.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code fhir_date} filter against the original {@code SimpleDateFormat}
+ * implementation for each input shape the templates see. Run with {@code -prof gc} to compare
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class DateFilterBenchmark {
+
+    @Param({"us-date", "us-date-time", "iso-date", "iso-instant", "unparseable"})
+    public String shape;
+
+    private final Filter legacy = new LegacyFhirDateFilter();
+    private final Filter current = new FhirDateFilter();
+
+    private String value;
+    private String inputFormat;
+    private String outputFormat;
+
+    @Setup
+    public void setUp() {
+        inputFormat = "MM/dd/yyyy";
+        outputFormat = "yyyy-MM-dd";
+        switch (shape) {
+            case "us-date" -> value = "01/15/1990";
+            case "us-date-time" -> {
+                value = "03/15/2024 09:30";
+                inputFormat = "MM/dd/yyyy HH:mm";
+                outputFormat = "yyyy-MM-dd'T'HH:mm:ssXXX";
+            }
+            case "iso-date" -> value = "1990-01-15";
+            case "iso-instant" -> value = "2024-03-15T09:30:00Z";
+            case "unparseable" -> value = "unknown";
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    @Benchmark
+    public Object legacy() {
+        return legacy.apply(value, null, inputFormat, outputFormat);
+    }
+
+    @Benchmark
+    public Object cachedFormatters() {
+        return current.apply(value, null, inputFormat, outputFormat);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.service.ConversionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalized Patient conversion through {@code patient.liquid} (render, parse, encode) versus
+ * the direct mapper, which builds the HAPI resource from the input and only encodes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class DirectMappingBenchmark {
+
+    @Param({"patient-with-filters", "patient-complex"})
+    private String example;
+
+    @Param({"false", "true"})
+    private boolean direct;
+
+    private ConfigurableApplicationContext context;
+    private ConversionService conversionService;
+    private ConversionRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication(
+            "--fhir.converter.direct-mapping.resource-types=" + (direct ? "Patient" : ""));
+        conversionService = context.getBean(ConversionService.class);
+
+        request = BenchmarkSupport.loadExample(example);
+        request.setValidate(false);
+        request.setNormalize(true);
+
+        ConversionResponse response = conversionService.convert(request);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Example " + example + " does not convert: " + response.getErrors());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ConversionResponse convert() {
+        return conversionService.convert(request);
+    }
+}
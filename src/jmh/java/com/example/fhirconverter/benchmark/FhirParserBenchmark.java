@@ -0,0 +1,74 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.service.TemplateService;
+import com.example.fhirconverter.util.FhirParserPool;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HAPI parse and encode cost of the rendered template output, using the same
+ * {@code fhirJsonParsers} pool as {@code ConversionService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class FhirParserBenchmark {
+
+    @Param({
+        "patient:patient-complex",
+        "observation:observation-blood-pressure",
+        "encounter:encounter-ambulatory",
+        "medication-request:medication-request-oral",
+        "bundle:bundle-transaction"
+    })
+    private String fixture;
+
+    private ConfigurableApplicationContext context;
+    private FhirParserPool fhirJsonParsers;
+    private String renderedJson;
+    private IBaseResource resource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        fhirJsonParsers = context.getBean(FhirParserPool.class);
+
+        String[] parts = fixture.split(":");
+        renderedJson = context.getBean(TemplateService.class)
+            .renderTemplate(parts[0], BenchmarkSupport.loadExample(parts[1]).getInputData());
+        resource = fhirJsonParsers.parseResource(renderedJson);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public IBaseResource parse() {
+        return fhirJsonParsers.parseResource(renderedJson);
+    }
+
+    @Benchmark
+    public String encode() {
+        return fhirJsonParsers.encodeResourceToString(resource);
+    }
+}
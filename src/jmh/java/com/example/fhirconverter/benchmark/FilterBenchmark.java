@@ -0,0 +1,119 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.filters.FhirAddressFilter;
+import com.example.fhirconverter.filters.FhirCodeFilter;
+import com.example.fhirconverter.filters.FhirDateFilter;
+import com.example.fhirconverter.filters.FhirIdentifierFilter;
+import com.example.fhirconverter.filters.FhirNamePartsFilter;
+import com.example.fhirconverter.filters.FhirPhoneFilter;
+import com.example.fhirconverter.filters.FhirQuantityFilter;
+import com.example.fhirconverter.filters.FhirReferenceFilter;
+import com.example.fhirconverter.filters.FhirUnitFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of each custom {@code fhir_*} filter, using input values taken from the
+ * example payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class FilterBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private FhirAddressFilter addressFilter;
+    private FhirCodeFilter codeFilter;
+    private FhirDateFilter dateFilter;
+    private FhirIdentifierFilter identifierFilter;
+    private FhirNamePartsFilter namePartsFilter;
+    private FhirPhoneFilter phoneFilter;
+    private FhirQuantityFilter quantityFilter;
+    private FhirReferenceFilter referenceFilter;
+    private FhirUnitFilter unitFilter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        addressFilter = context.getBean(FhirAddressFilter.class);
+        codeFilter = context.getBean(FhirCodeFilter.class);
+        dateFilter = context.getBean(FhirDateFilter.class);
+        identifierFilter = context.getBean(FhirIdentifierFilter.class);
+        namePartsFilter = context.getBean(FhirNamePartsFilter.class);
+        phoneFilter = context.getBean(FhirPhoneFilter.class);
+        quantityFilter = context.getBean(FhirQuantityFilter.class);
+        referenceFilter = context.getBean(FhirReferenceFilter.class);
+        unitFilter = context.getBean(FhirUnitFilter.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object address() {
+        return addressFilter.apply("123 Main St, Boston, MA, 02101", null);
+    }
+
+    @Benchmark
+    public Object code() {
+        return codeFilter.apply("M", null, "gender");
+    }
+
+    @Benchmark
+    public Object date() {
+        return dateFilter.apply("01/15/1990", null, "MM/dd/yyyy", "yyyy-MM-dd");
+    }
+
+    @Benchmark
+    public Object dateIsoFallback() {
+        return dateFilter.apply("2024-03-15T09:30:00Z", null, "MM/dd/yyyy", "yyyy-MM-dd");
+    }
+
+    @Benchmark
+    public Object identifierSsn() {
+        return identifierFilter.apply("123456789", null, "SSN");
+    }
+
+    @Benchmark
+    public Object nameParts() {
+        return namePartsFilter.apply("John Michael Doe", null);
+    }
+
+    @Benchmark
+    public Object phone() {
+        return phoneFilter.apply("(555) 123-4567", null, "home");
+    }
+
+    @Benchmark
+    public Object quantity() {
+        return quantityFilter.apply(98, null, "mg/dL", "canonical");
+    }
+
+    @Benchmark
+    public Object reference() {
+        return referenceFilter.apply("patient-001", null, "Patient");
+    }
+
+    @Benchmark
+    public Object unit() {
+        return unitFilter.apply("mmHg", null);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.util.IdGenerator;
+import com.example.fhirconverter.util.IdGenerators;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code uuid} throughput of each {@link IdGenerators} strategy with 64 threads generating at
+ * once, as under a busy request pool. {@code random} shares one SecureRandom between all threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(64)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "fast-random", "time-ordered", "content"})
+    private String strategy;
+
+    private IdGenerator idGenerator;
+    private Map<String, Object> input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        idGenerator = IdGenerators.of(strategy, new ObjectMapper());
+        input = BenchmarkSupport.loadExample("patient-complex").getInputData();
+    }
+
+    @Benchmark
+    public String newId() {
+        return idGenerator.newId("patient", input);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.service.TemplateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TemplateService#renderTemplate} throughput for every template, each rendered with
+ * the example payload that exercises it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class TemplateRenderBenchmark {
+
+    @Param({
+        "patient:patient-complex",
+        "patient-simple:patient-simple",
+        "patient-fixed:patient-with-filters",
+        "patient-advanced:patient-with-filters",
+        "observation:observation-blood-pressure",
+        "encounter:encounter-ambulatory",
+        "medication-request:medication-request-oral",
+        "bundle:bundle-transaction"
+    })
+    private String fixture;
+
+    /** {@code fhir.converter.templates.fuse-json-filters}, to compare against unfused filter chains. */
+    @Param({"true", "false"})
+    private boolean fuseJsonFilters;
+
+    private ConfigurableApplicationContext context;
+    private TemplateService templateService;
+    private String template;
+    private Map<String, Object> inputData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication("--fhir.converter.templates.fuse-json-filters=" + fuseJsonFilters);
+        templateService = context.getBean(TemplateService.class);
+
+        String[] parts = fixture.split(":");
+        template = parts[0];
+        inputData = BenchmarkSupport.loadExample(parts[1]).getInputData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String render() {
+        return templateService.renderTemplate(template, inputData);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.fhirconverter.benchmark;
+
+import com.example.fhirconverter.model.ValidationResult;
+import com.example.fhirconverter.service.TemplateService;
+import com.example.fhirconverter.service.ValidationService;
+import com.example.fhirconverter.util.FhirParserPool;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ValidationService#validate} cost for resources produced from the example payloads.
+ * With {@code resultCache} the same resource is validated on every call, so every call after
+ * the first is a cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ValidationBenchmark {
+
+    @Param({
+        "patient:patient-complex",
+        "observation:observation-lab-result",
+        "encounter:encounter-ambulatory"
+    })
+    private String fixture;
+
+    @Param({"false", "true"})
+    private boolean resultCache;
+
+    private ConfigurableApplicationContext context;
+    private ValidationService validationService;
+    private IBaseResource resource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication("--fhir.converter.validation.result-cache.enabled=" + resultCache);
+        validationService = context.getBean(ValidationService.class);
+
+        String[] parts = fixture.split(":");
+        String renderedJson = context.getBean(TemplateService.class)
+            .renderTemplate(parts[0], BenchmarkSupport.loadExample(parts[1]).getInputData());
+        resource = context.getBean(FhirParserPool.class).parseResource(renderedJson);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ValidationResult validate() {
+        return validationService.validate(resource);
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.fhirconverter;
 
+import com.example.fhirconverter.cli.FileConversionRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
-@EnableCaching
 public class FhirConverterApplication {
     
     public static void main(String[] args) {
-        SpringApplication.run(FhirConverterApplication.class, args);
+        SpringApplication application = new SpringApplication(FhirConverterApplication.class);
+        application.addListeners(new FileConversionRunner.OfflineMode());
+        ConfigurableApplicationContext context = application.run(args);
+        if (FileConversionRunner.isRequested(context.getEnvironment())) {
+            // Offline file conversion: no web server, exit when the conversion is done
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.example.fhirconverter.actuator;
+
+import com.example.fhirconverter.service.CompiledTemplate;
+import com.example.fhirconverter.service.TemplateRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@code /actuator/templates}: the version of each template currently served and the compile
+ * error of every template whose latest change could not be compiled.
+ */
+@Component
+@Endpoint(id = "templates")
+@RequiredArgsConstructor
+public class TemplatesEndpoint {
+
+    private final TemplateRegistry templateRegistry;
+
+    @ReadOperation
+    public TemplatesReport templates() {
+        Map<String, TemplateDescriptor> templates = new TreeMap<>();
+        for (CompiledTemplate compiled : templateRegistry.getTemplates().values()) {
+            templates.put(compiled.name(), new TemplateDescriptor(
+                compiled.resource().getDescription(),
+                compiled.lastModified() > 0 ? Instant.ofEpochMilli(compiled.lastModified()) : null,
+                compiled.compiledAt()));
+        }
+        return new TemplatesReport(templates, new TreeMap<>(templateRegistry.getCompileErrors()));
+    }
+
+    public record TemplatesReport(Map<String, TemplateDescriptor> templates,
+                                  Map<String, TemplateRegistry.CompileError> errors) {
+    }
+
+    public record TemplateDescriptor(String source, Instant lastModified, Instant compiledAt) {
+    }
+}
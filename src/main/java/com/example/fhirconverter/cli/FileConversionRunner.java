@@ -0,0 +1,74 @@
+package com.example.fhirconverter.cli;
+
+import com.example.fhirconverter.model.FileConversionSummary;
+import com.example.fhirconverter.service.FileConversionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Runs an offline file conversion when {@code fhir.converter.file-conversion.input} is set, from
+ * any property source, instead of serving HTTP. The exit code is 0 when every record converted
+ * and 1 otherwise.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(FileConversionRunner.INPUT_PROPERTY)
+public class FileConversionRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    public static final String INPUT_PROPERTY = "fhir.converter.file-conversion.input";
+
+    private final FileConversionService fileConversionService;
+
+    @Value("${" + INPUT_PROPERTY + "}")
+    private Path input;
+
+    @Value("${fhir.converter.file-conversion.output-directory:data/converted}")
+    private Path outputDirectory;
+
+    private int exitCode;
+
+    /** Whether the environment asks for a file conversion. */
+    public static boolean isRequested(Environment environment) {
+        return environment.containsProperty(INPUT_PROPERTY);
+    }
+
+    /**
+     * Starts the application without a web server when a file conversion is requested. The
+     * environment is complete, command line, environment variables and config files, once it
+     * is prepared, and the application context hasn't been created yet.
+     */
+    public static final class OfflineMode implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+        @Override
+        public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+            if (isRequested(event.getEnvironment())) {
+                event.getSpringApplication().setWebApplicationType(WebApplicationType.NONE);
+            }
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        FileConversionSummary summary = fileConversionService.convert(input, outputDirectory);
+        log.info("Wrote {} records to {}", summary.getRecords(), outputDirectory.toAbsolutePath());
+        exitCode = summary.getFailed() == 0 ? 0 : 1;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
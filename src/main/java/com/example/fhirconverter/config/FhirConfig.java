@@ -2,13 +2,22 @@ package com.example.fhirconverter.config;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.PerformanceOptionsEnum;
-import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
+import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.validation.FhirValidator;
+import com.example.fhirconverter.util.FhirParserPool;
 import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.common.hapi.validation.support.CommonCodeSystemsTerminologyService;
+import org.hl7.fhir.common.hapi.validation.support.InMemoryTerminologyServerValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.SnapshotGeneratingValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
+import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @Slf4j
 public class FhirConfig {
@@ -20,17 +29,60 @@ public class FhirConfig {
         return context;
     }
     
+    /**
+     * JSON parsers with the response encode options. A pool rather than one shared parser, since
+     * HAPI parsers must not be used by several threads at once.
+     */
+    @Bean
+    public FhirParserPool fhirJsonParsers(FhirContext fhirContext,
+                                          @Value("${fhir.converter.pretty-print}") boolean prettyPrint,
+                                          @Value("${fhir.converter.fhir-context.parser-pool-size:0}") int poolSize) {
+        int size = poolSize > 0 ? poolSize : 2 * Runtime.getRuntime().availableProcessors();
+        return new FhirParserPool(fhirContext, size, parser -> {
+            parser.setPrettyPrint(prettyPrint);
+            parser.setOmitResourceId(false);
+        });
+    }
+    
+    /**
+     * Structure definitions, snapshots and terminology for the instance validator, built once and
+     * shared by every validation. The chain caches lookups, including the snapshots it generates.
+     */
+    @Bean
+    public ValidationSupportChain validationSupport(FhirContext fhirContext,
+                                                    @Value("${fhir.converter.validation.cache.size:5000}") int cacheSize,
+                                                    @Value("${fhir.converter.validation.cache.timeout:1h}") Duration cacheTimeout) {
+        ValidationSupportChain.CacheConfiguration cacheConfiguration = ValidationSupportChain.CacheConfiguration.defaultValues()
+            .setCacheSize(cacheSize)
+            .setCacheTimeout(cacheTimeout);
+        return new ValidationSupportChain(cacheConfiguration,
+            new DefaultProfileValidationSupport(fhirContext),
+            new CommonCodeSystemsTerminologyService(fhirContext),
+            new InMemoryTerminologyServerValidationSupport(fhirContext),
+            new SnapshotGeneratingValidationSupport(fhirContext));
+    }
+    
+    /**
+     * Profile validation against {@link #validationSupport}. In strict mode unknown profiles and
+     * extensions are errors.
+     */
     @Bean
-    public IParser fhirJsonParser(FhirContext fhirContext, 
-                                  @Value("${fhir.converter.pretty-print}") boolean prettyPrint) {
-        IParser parser = fhirContext.newJsonParser();
-        parser.setPrettyPrint(prettyPrint);
-        parser.setOmitResourceId(false);
-        return parser;
+    public FhirInstanceValidator fhirInstanceValidator(IValidationSupport validationSupport,
+                                                       @Value("${fhir.converter.validation.strict:false}") boolean strict) {
+        FhirInstanceValidator instanceValidator = new FhirInstanceValidator(validationSupport);
+        instanceValidator.setErrorForUnknownProfiles(strict);
+        instanceValidator.setAnyExtensionsAllowed(!strict);
+        return instanceValidator;
     }
     
+    /**
+     * Thread-safe validator that runs {@link #fhirInstanceValidator}.
+     */
     @Bean
-    public FhirValidator fhirValidator(FhirContext fhirContext) {
-        return fhirContext.newValidator();
+    public FhirValidator fhirValidator(FhirContext fhirContext, FhirInstanceValidator fhirInstanceValidator) {
+        return fhirContext.newValidator()
+            .setValidateAgainstStandardSchema(false)
+            .setValidateAgainstStandardSchematron(false)
+            .registerValidatorModule(fhirInstanceValidator);
     }
 }
\ No newline at end of file
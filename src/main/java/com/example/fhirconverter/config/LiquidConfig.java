@@ -1,19 +1,19 @@
 package com.example.fhirconverter.config;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.example.fhirconverter.filters.MaskedPhoneNumberFormat;
+import com.example.fhirconverter.filters.PhoneNumberFormat;
+import com.example.fhirconverter.util.IdGenerator;
+import com.example.fhirconverter.util.IdGenerators;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import liqp.TemplateParser;
 import liqp.filters.Filter;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 @Configuration
-@EnableCaching
 public class LiquidConfig {
 
     @Bean
@@ -29,12 +29,16 @@ public class LiquidConfig {
                      .build();
     }
 
+    /** The {@code uuid} of templates; see {@link IdGenerators} for the strategies. */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("templates");
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-            .maximumSize(100)
-            .expireAfterWrite(10, TimeUnit.MINUTES));
-        return cacheManager;
+    public IdGenerator idGenerator(@Value("${fhir.converter.ids.strategy:random}") String strategy,
+                                   ObjectMapper objectMapper) {
+        return IdGenerators.of(strategy, objectMapper);
+    }
+
+    /** North American numbering plan, the {@code fhir_phone} default region. */
+    @Bean
+    public PhoneNumberFormat usPhoneNumberFormat() {
+        return new MaskedPhoneNumberFormat("US", "1", "(###) ###-####");
     }
 }
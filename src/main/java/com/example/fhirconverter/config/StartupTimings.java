@@ -0,0 +1,93 @@
+package com.example.fhirconverter.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Records where startup time goes: the initialization ({@code @PostConstruct}) time of each of
+ * the application's own beans that takes at least {@value #REPORTED_MILLIS} ms, and the time the
+ * {@code ApplicationRunner}s such as the warm-up take before the application is ready. When the
+ * application is ready, the breakdown is logged and published as the {@code fhir.startup.phase}
+ * time gauge, tagged with the phase; Spring Boot's {@code application.ready.time} holds the total.
+ * <p>
+ * No dependencies are injected: a bean post-processor is created before other beans and would
+ * otherwise make them miss post-processing.
+ */
+@Component
+@Slf4j
+public class StartupTimings implements BeanPostProcessor {
+
+    private static final String PACKAGE = "com.example.fhirconverter.";
+    private static final long REPORTED_MILLIS = 10;
+
+    private final Map<String, Long> initializationStarts = new ConcurrentHashMap<>();
+    private final Map<String, Long> phaseNanos = new ConcurrentHashMap<>();
+    private volatile long startedNanos;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean.getClass().getName().startsWith(PACKAGE)) {
+            initializationStarts.put(beanName, System.nanoTime());
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Long start = initializationStarts.remove(beanName);
+        if (start != null) {
+            long nanos = System.nanoTime() - start;
+            if (nanos >= TimeUnit.MILLISECONDS.toNanos(REPORTED_MILLIS)) {
+                phaseNanos.put(beanName, nanos);
+            }
+        }
+        return bean;
+    }
+
+    @EventListener
+    public void onStarted(ApplicationStartedEvent event) {
+        startedNanos = System.nanoTime();
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        phaseNanos.put("runners", System.nanoTime() - startedNanos);
+        publish(event.getApplicationContext().getBean(MeterRegistry.class));
+    }
+
+    /** Initialization time of each reported bean, and {@code runners}, once the application is ready. */
+    public Map<String, Long> getPhaseMillis() {
+        return phaseNanos.entrySet().stream()
+            .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> TimeUnit.NANOSECONDS.toMillis(e.getValue())));
+    }
+
+    private void publish(MeterRegistry meterRegistry) {
+        List<String> phases = new ArrayList<>();
+        phaseNanos.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .forEach(phase -> {
+                long nanos = phase.getValue();
+                TimeGauge.builder("fhir.startup.phase", () -> nanos, TimeUnit.NANOSECONDS)
+                    .description("Time a startup phase took")
+                    .tag("phase", phase.getKey())
+                    .register(meterRegistry);
+                phases.add(phase.getKey() + " " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+            });
+        log.info("Ready {} ms after JVM start; slowest startup phases: {}",
+            ManagementFactory.getRuntimeMXBean().getUptime(), String.join(", ", phases));
+    }
+}
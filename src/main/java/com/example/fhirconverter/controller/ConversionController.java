@@ -1,17 +1,34 @@
 package com.example.fhirconverter.controller;
 
+import com.example.fhirconverter.model.BatchConversionRequest;
+import com.example.fhirconverter.model.BatchConversionResponse;
 import com.example.fhirconverter.model.ConversionRequest;
 import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.service.BatchConversionService;
+import com.example.fhirconverter.service.BulkConversionService;
 import com.example.fhirconverter.service.ConversionService;
+import com.example.fhirconverter.util.FhirParserPool;
+import com.example.fhirconverter.util.OperationOutcomes;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/v1/convert")
@@ -20,7 +37,15 @@ import java.util.List;
 @Validated
 public class ConversionController {
     
+    public static final String FHIR_JSON_VALUE = "application/fhir+json";
+    
     private final ConversionService conversionService;
+    private final BulkConversionService bulkConversionService;
+    private final BatchConversionService batchConversionService;
+    private final FhirParserPool fhirJsonParsers;
+    
+    @Value("${fhir.converter.bulk.request-timeout:0}")
+    private Duration bulkRequestTimeout;
     
     @PostMapping
     public ResponseEntity<ConversionResponse> convert(@Valid @RequestBody ConversionRequest request) {
@@ -32,6 +57,67 @@ public class ConversionController {
             : ResponseEntity.badRequest().body(response);
     }
     
+    /**
+     * Returns the converted resource itself when the client sends {@code Accept: application/fhir+json},
+     * streamed into the response body rather than escaped into a {@link ConversionResponse}.
+     * Failures are returned as an OperationOutcome with status 400.
+     */
+    @PostMapping(produces = FHIR_JSON_VALUE)
+    public void convertRaw(@Valid @RequestBody ConversionRequest request, HttpServletResponse response) throws IOException {
+        log.info("Converting {} resource to raw FHIR JSON", request.getResourceType());
+        response.setContentType(FHIR_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        
+        Writer writer = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        ConversionResponse result = conversionService.convert(request, writer);
+        if (result.isSuccess()) {
+            writer.flush();
+            return;
+        }
+        
+        if (response.isCommitted()) {
+            // Part of the resource has already been sent; the body is left truncated
+            log.error("Conversion of {} failed after the response was committed", request.getResourceType());
+            return;
+        }
+        // Drop anything buffered by the failed attempt, including the unflushed writer
+        response.resetBuffer();
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        Writer outcomeWriter = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        fhirJsonParsers.encodeResourceToWriter(OperationOutcomes.processingErrors(result.getErrors()), outcomeWriter);
+        outcomeWriter.flush();
+    }
+    
+    /**
+     * Streams one output line per NDJSON input line. The stream runs for as long as the client
+     * keeps sending records, so it has a timeout of its own, {@code fhir.converter.bulk.request-timeout}
+     * (0 for none), instead of the default timeout of async requests.
+     */
+    @PostMapping(value = "/bulk",
+                 consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> convertBulk(InputStream body, HttpServletResponse response) {
+        log.info("Starting bulk NDJSON conversion");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        Callable<Void> stream = () -> {
+            bulkConversionService.convert(body, response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        };
+        
+        return new WebAsyncTask<>(bulkRequestTimeout.isZero() ? -1 : bulkRequestTimeout.toMillis(), stream);
+    }
+    
+    /**
+     * Converts up to {@code fhir.converter.batch.max-records} requests in one call. The response
+     * holds one result per request, in order; records that fail don't affect the others.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchConversionResponse> convertBatch(@Valid @RequestBody BatchConversionRequest request) {
+        log.info("Converting batch of {} records", request.getRequests().size());
+        return ResponseEntity.ok(batchConversionService.convert(request));
+    }
+    
     @GetMapping("/templates")
     public ResponseEntity<List<String>> getAvailableTemplates() {
         // Implementation to list available templates
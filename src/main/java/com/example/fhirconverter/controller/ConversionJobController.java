@@ -0,0 +1,91 @@
+package com.example.fhirconverter.controller;
+
+import com.example.fhirconverter.model.ConversionJob;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.service.ConversionJobService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Asynchronous conversions: a submitted job is answered with {@code 202 Accepted} and its
+ * status URL, and runs on the job worker pool instead of a request thread. Clients poll the
+ * status and fetch the NDJSON result once the job is {@code COMPLETED}.
+ */
+@ConditionalOnWebApplication
+@RestController
+@RequestMapping("/api/v1/jobs")
+@Slf4j
+@RequiredArgsConstructor
+@Validated
+public class ConversionJobController {
+    
+    private final ConversionJobService conversionJobService;
+    
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ConversionJob> submitBulk(InputStream body) throws IOException {
+        return accepted(conversionJobService.submit(body));
+    }
+    
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ConversionJob> submit(@Valid @RequestBody ConversionRequest request) throws IOException {
+        return accepted(conversionJobService.submit(request));
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<ConversionJob> getJob(@PathVariable String id) {
+        return ResponseEntity.of(conversionJobService.find(id));
+    }
+    
+    /**
+     * The converted resources as NDJSON, one line per input line; failed records are
+     * OperationOutcome lines. {@code 409 Conflict} with the job status until the job has completed.
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> getResult(@PathVariable String id) {
+        Optional<Path> result = conversionJobService.resultFile(id);
+        if (result.isPresent()) {
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(new FileSystemResource(result.get()));
+        }
+        
+        Optional<ConversionJob> job = conversionJobService.find(id);
+        return job.isPresent()
+            ? ResponseEntity.status(HttpStatus.CONFLICT).body(job.get())
+            : ResponseEntity.notFound().build();
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteJob(@PathVariable String id) throws IOException {
+        try {
+            return conversionJobService.delete(id).isPresent()
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    private static ResponseEntity<ConversionJob> accepted(ConversionJob job) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/api/v1/jobs/{id}")
+            .buildAndExpand(job.getId())
+            .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+}
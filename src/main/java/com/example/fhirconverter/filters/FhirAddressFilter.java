@@ -20,34 +20,37 @@ public class FhirAddressFilter extends Filter {
     public Object apply(Object value, TemplateContext context, Object... params) {
         if (value == null) return null;
         
-        if (value instanceof String) {
-            // Parse single line address
-            String addressLine = (String) value;
-            String[] parts = addressLine.split(",");
-            
-            Map<String, Object> address = new HashMap<>();
-            List<String> lines = new ArrayList<>();
-            
-            if (parts.length > 0) {
-                lines.add(parts[0].trim());
-            }
-            
-            address.put("line", lines);
-            
-            if (parts.length > 1) {
-                address.put("city", parts[1].trim());
-            }
-            if (parts.length > 2) {
-                address.put("state", parts[2].trim());
-            }
-            if (parts.length > 3) {
-                address.put("postalCode", parts[3].trim());
-            }
-            
-            address.put("country", "US");
-            return address;
+        if (value instanceof String addressLine) {
+            return address(addressLine);
         }
         
         return value;
     }
+    
+    /** Parses a single line "street, city, state, postal code" address; country is US. */
+    public static Map<String, Object> address(String addressLine) {
+        String[] parts = addressLine.split(",");
+        
+        Map<String, Object> address = new HashMap<>();
+        List<String> lines = new ArrayList<>();
+        
+        if (parts.length > 0) {
+            lines.add(parts[0].trim());
+        }
+        
+        address.put("line", lines);
+        
+        if (parts.length > 1) {
+            address.put("city", parts[1].trim());
+        }
+        if (parts.length > 2) {
+            address.put("state", parts[2].trim());
+        }
+        if (parts.length > 3) {
+            address.put("postalCode", parts[3].trim());
+        }
+        
+        address.put("country", "US");
+        return address;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.fhirconverter.filters;
+
+import liqp.TemplateContext;
+import liqp.filters.Filter;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code {{ address | fhir_address_json }}}: the same JSON as {@code fhir_address | json},
+ * written without building the address map and line list.
+ */
+@Component
+public class FhirAddressJsonFilter extends Filter {
+    
+    public FhirAddressJsonFilter() {
+        super("fhir_address" + FusedJsonFilters.SUFFIX);
+    }
+    
+    @Override
+    public Object apply(Object value, TemplateContext context, Object... params) {
+        if (!(value instanceof String addressLine)) {
+            // Anything but an address line passes through fhir_address unchanged
+            return JsonFragment.write(value, context);
+        }
+        
+        String[] parts = addressLine.split(",");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        JsonFragment address = new JsonFragment(128).field("line", parts, 0, Math.min(parts.length, 1));
+        if (parts.length > 1) {
+            address.field("city", parts[1]);
+        }
+        if (parts.length > 2) {
+            address.field("state", parts[2]);
+        }
+        if (parts.length > 3) {
+            address.field("postalCode", parts[3]);
+        }
+        return address.field("country", "US").end();
+    }
+}
\ No newline at end of file
@@ -1,53 +1,36 @@
 package com.example.fhirconverter.filters;
 
+import com.example.fhirconverter.terminology.ConceptMapStore;
 import liqp.TemplateContext;
 import liqp.filters.Filter;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * {@code {{ value | fhir_code: 'map' }}}: the code {@code value} maps to in a concept map
+ * from {@link ConceptMapStore}, or {@code value} unchanged.
+ */
 @Component
 public class FhirCodeFilter extends Filter {
     
-    private final Map<String, Map<String, String>> codeMappings;
+    private final ConceptMapStore conceptMaps;
     
-    public FhirCodeFilter() {
+    public FhirCodeFilter(ConceptMapStore conceptMaps) {
         super("fhir_code");
-        this.codeMappings = new HashMap<>();
-        initializeCodeMappings();
-    }
-    
-    private void initializeCodeMappings() {
-        // Gender mappings
-        Map<String, String> genderMap = new HashMap<>();
-        genderMap.put("M", "male");
-        genderMap.put("F", "female");
-        genderMap.put("O", "other");
-        genderMap.put("U", "unknown");
-        codeMappings.put("gender", genderMap);
-        
-        // Marital status mappings
-        Map<String, String> maritalMap = new HashMap<>();
-        maritalMap.put("S", "S");  // Single
-        maritalMap.put("M", "M");  // Married
-        maritalMap.put("D", "D");  // Divorced
-        maritalMap.put("W", "W");  // Widowed
-        codeMappings.put("marital", maritalMap);
+        this.conceptMaps = conceptMaps;
     }
     
     @Override
     public Object apply(Object value, TemplateContext context, Object... params) {
         if (value == null || params.length == 0) return value;
         
-        String input = super.asString(value, context);
-        String codeSystem = super.asString(params[0], context);
-        
-        Map<String, String> mapping = codeMappings.get(codeSystem);
-        if (mapping != null && mapping.containsKey(input)) {
-            return mapping.get(input);
-        }
+        return code(super.asString(value, context), super.asString(params[0], context));
+    }
+    
+    /** Maps {@code input} to its code in {@code codeSystem}, or returns it unchanged. */
+    public String code(String input, String codeSystem) {
+        if (input == null) return null;
         
-        return input;
+        String mapped = conceptMaps.translate(codeSystem, input);
+        return mapped != null ? mapped : input;
     }
 }
\ No newline at end of file
@@ -4,48 +4,265 @@ import liqp.TemplateContext;
 import liqp.filters.Filter;
 import org.springframework.stereotype.Component;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
 import java.time.Instant;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Reformats dates, e.g. {@code {{ birth_date | fhir_date: 'MM/dd/yyyy', 'yyyy-MM-dd' }}}.
+ * Patterns use {@link DateTimeFormatter} syntax (compatible with the common
+ * {@code SimpleDateFormat} patterns); formatters are built once per pattern and shared.
+ * Common input shapes (MM/dd/yyyy, ISO date, ISO instant) are recognised by a character scan,
+ * and no parse attempt throws, so unparseable values cost no exceptions. Values that cannot be
+ * parsed are returned unchanged, and so are dates that don't exist, such as 02/30/2024, which
+ * a lenient {@code SimpleDateFormat} rolled over to the next month.
+ */
 @Component
 public class FhirDateFilter extends Filter {
-    
+
+    private static final String US_DATE_FORMAT = "MM/dd/yyyy";
+    private static final String DEFAULT_OUTPUT_FORMAT = "yyyy-MM-dd";
+
+    private final Map<String, DateTimeFormatter> parseFormatters = new ConcurrentHashMap<>();
+    private final Map<String, DateTimeFormatter> outputFormatters = new ConcurrentHashMap<>();
+
     public FhirDateFilter() {
         super("fhir_date");
     }
-    
+
     @Override
     public Object apply(Object value, TemplateContext context, Object... params) {
         if (value == null) return null;
-        
+
         String dateStr = super.asString(value, context);
-        String inputFormat = params.length > 0 ? super.asString(params[0], context) : "MM/dd/yyyy";
-        String outputFormat = params.length > 1 ? super.asString(params[1], context) : "yyyy-MM-dd";
-        
+        String inputFormat = params.length > 0 ? super.asString(params[0], context) : US_DATE_FORMAT;
+        String outputFormat = params.length > 1 ? super.asString(params[1], context) : DEFAULT_OUTPUT_FORMAT;
+        return format(dateStr, inputFormat, outputFormat);
+    }
+
+    /** Reformats {@code dateStr} from {@code inputFormat} to {@code outputFormat}, or returns it unchanged. */
+    public String format(String dateStr, String inputFormat, String outputFormat) {
+        ZonedDateTime date = parse(dateStr, inputFormat);
+        if (date == null) {
+            return dateStr; // Return original if parsing fails
+        }
+        return outputFormatters.computeIfAbsent(outputFormat, FhirDateFilter::outputFormatter).format(date);
+    }
+
+    private ZonedDateTime parse(String text, String inputFormat) {
+        LocalDateTime local = US_DATE_FORMAT.equals(inputFormat)
+            ? parseUsDate(text)
+            : parseWithPattern(text, parseFormatters.computeIfAbsent(inputFormat, FhirDateFilter::parseFormatter));
+        if (local != null) {
+            return local.atZone(ZoneId.systemDefault());
+        }
+
+        // Fall back to ISO shapes regardless of the declared input format
+        if (isIsoDate(text)) {
+            local = parseWithPattern(text, DateTimeFormatter.ISO_LOCAL_DATE);
+            return local != null ? local.atZone(ZoneId.systemDefault()) : null;
+        }
+        if (isIsoInstant(text)) {
+            return parseInstant(text);
+        }
+        return null;
+    }
+
+    /**
+     * Scans M/d/yyyy with one or two digit month and day. Trailing text such as a time is
+     * ignored, as it was with {@code SimpleDateFormat}.
+     */
+    private static LocalDateTime parseUsDate(String text) {
+        int length = text.length();
+        int pos = 0;
+
+        int month = 0;
+        int digits = 0;
+        while (pos < length && digits < 2 && isDigit(text.charAt(pos))) {
+            month = month * 10 + (text.charAt(pos++) - '0');
+            digits++;
+        }
+        if (digits == 0 || pos >= length || text.charAt(pos++) != '/') return null;
+
+        int day = 0;
+        digits = 0;
+        while (pos < length && digits < 2 && isDigit(text.charAt(pos))) {
+            day = day * 10 + (text.charAt(pos++) - '0');
+            digits++;
+        }
+        if (digits == 0 || pos >= length || text.charAt(pos++) != '/') return null;
+
+        if (pos + 4 > length) return null;
+        int year = 0;
+        for (int end = pos + 4; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if (!isDigit(c)) return null;
+            year = year * 10 + (c - '0');
+        }
+        if (pos < length && isDigit(text.charAt(pos))) return null;
+
+        return toDateTime(year, month, day, 0, 0, 0, 0);
+    }
+
+    private static LocalDateTime parseWithPattern(String text, DateTimeFormatter formatter) {
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = formatter.parseUnresolved(text, position);
+        if (parsed == null || position.getErrorIndex() >= 0) {
+            return null;
+        }
+
+        int year;
+        if (parsed.isSupported(ChronoField.YEAR)) {
+            year = (int) parsed.getLong(ChronoField.YEAR);
+        } else if (parsed.isSupported(ChronoField.YEAR_OF_ERA)) {
+            year = (int) parsed.getLong(ChronoField.YEAR_OF_ERA);
+        } else {
+            return null;
+        }
+
+        int hour = 0;
+        if (parsed.isSupported(ChronoField.HOUR_OF_DAY)) {
+            hour = (int) parsed.getLong(ChronoField.HOUR_OF_DAY);
+        } else if (parsed.isSupported(ChronoField.CLOCK_HOUR_OF_AMPM) || parsed.isSupported(ChronoField.HOUR_OF_AMPM)) {
+            hour = parsed.isSupported(ChronoField.HOUR_OF_AMPM)
+                ? (int) parsed.getLong(ChronoField.HOUR_OF_AMPM)
+                : (int) parsed.getLong(ChronoField.CLOCK_HOUR_OF_AMPM) % 12;
+            if (parsed.isSupported(ChronoField.AMPM_OF_DAY)) {
+                hour += 12 * (int) parsed.getLong(ChronoField.AMPM_OF_DAY);
+            }
+        }
+
+        return toDateTime(year,
+            field(parsed, ChronoField.MONTH_OF_YEAR, 1),
+            field(parsed, ChronoField.DAY_OF_MONTH, 1),
+            hour,
+            field(parsed, ChronoField.MINUTE_OF_HOUR, 0),
+            field(parsed, ChronoField.SECOND_OF_MINUTE, 0),
+            field(parsed, ChronoField.NANO_OF_SECOND, 0));
+    }
+
+    private static ZonedDateTime parseInstant(String text) {
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = DateTimeFormatter.ISO_INSTANT.parseUnresolved(text, position);
+        if (parsed == null || position.getErrorIndex() >= 0 || position.getIndex() != text.length()
+            || !parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(parsed.getLong(ChronoField.INSTANT_SECONDS),
+            field(parsed, ChronoField.NANO_OF_SECOND, 0));
+        return instant.atZone(ZoneId.systemDefault());
+    }
+
+    private static int field(TemporalAccessor parsed, ChronoField field, int defaultValue) {
+        return parsed.isSupported(field) ? (int) parsed.getLong(field) : defaultValue;
+    }
+
+    private static LocalDateTime toDateTime(int year, int month, int day, int hour, int minute, int second, int nano) {
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
         try {
-            SimpleDateFormat input = new SimpleDateFormat(inputFormat);
-            SimpleDateFormat output = new SimpleDateFormat(outputFormat);
-            Date date = input.parse(dateStr);
-            
-            // FHIR allows different precision levels
-            if (outputFormat.equals("yyyy")) {
-                return output.format(date);
-            } else if (outputFormat.equals("yyyy-MM")) {
-                return output.format(date);
-            } else {
-                return output.format(date); // Full date
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            return null; // Day out of range for the month, e.g. 02/30
+        }
+    }
+
+    /** yyyy-MM-dd, optionally followed by text that isn't a digit or a time. */
+    private static boolean isIsoDate(String text) {
+        return text.length() >= 10
+            && isDigits(text, 0, 4) && text.charAt(4) == '-'
+            && isDigits(text, 5, 7) && text.charAt(7) == '-'
+            && isDigits(text, 8, 10)
+            && (text.length() == 10 || !isDigit(text.charAt(10)) && text.charAt(10) != 'T');
+    }
+
+    /** yyyy-MM-ddTHH:mm:ss[.fraction]Z */
+    private static boolean isIsoInstant(String text) {
+        return text.length() >= 20
+            && isDigits(text, 0, 4) && text.charAt(4) == '-'
+            && isDigits(text, 5, 7) && text.charAt(7) == '-'
+            && isDigits(text, 8, 10) && text.charAt(10) == 'T'
+            && isDigits(text, 11, 13) && text.charAt(13) == ':'
+            && isDigits(text, 14, 16) && text.charAt(16) == ':'
+            && isDigits(text, 17, 19)
+            && text.charAt(text.length() - 1) == 'Z';
+    }
+
+    private static boolean isDigits(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isDigit(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static DateTimeFormatter outputFormatter(String pattern) {
+        return DateTimeFormatter.ofPattern(quoteLiteralT(pattern));
+    }
+
+    /**
+     * Builds a parser that, like {@code SimpleDateFormat}, is case-insensitive and accepts one or
+     * two digits for two-letter numeric fields delimited by separators (e.g. 1/5/1990 for MM/dd/yyyy).
+     */
+    private static DateTimeFormatter parseFormatter(String pattern) {
+        String quoted = quoteLiteralT(pattern);
+        StringBuilder lenient = new StringBuilder(quoted.length());
+        boolean inQuote = false;
+
+        for (int i = 0; i < quoted.length(); i++) {
+            char c = quoted.charAt(i);
+            if (c == '\'') {
+                inQuote = !inQuote;
+            } else if (!inQuote && "MdHhms".indexOf(c) >= 0
+                    && i + 1 < quoted.length() && quoted.charAt(i + 1) == c
+                    && (i == 0 || !Character.isLetter(quoted.charAt(i - 1)))
+                    && (i + 2 == quoted.length() || !Character.isLetter(quoted.charAt(i + 2)))) {
+                lenient.append(c);
+                i++;
+                continue;
             }
-        } catch (ParseException e) {
-            // Try parsing as ISO date
-            try {
-                Instant instant = Instant.parse(dateStr);
-                SimpleDateFormat output = new SimpleDateFormat(outputFormat);
-                return output.format(Date.from(instant));
-            } catch (Exception e2) {
-                return dateStr; // Return original if parsing fails
+            lenient.append(c);
+        }
+        return new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern(lenient.toString())
+            .toFormatter();
+    }
+
+    /**
+     * Templates use ISO-style patterns such as {@code yyyy-MM-ddTHH:mm:ssXXX} where the 'T' is
+     * meant literally; neither formatter accepts an unquoted 'T', so quote it.
+     */
+    private static String quoteLiteralT(String pattern) {
+        if (pattern.indexOf('T') < 0) {
+            return pattern;
+        }
+        StringBuilder quoted = new StringBuilder(pattern.length() + 2);
+        boolean inQuote = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                inQuote = !inQuote;
+            }
+            if (c == 'T' && !inQuote) {
+                quoted.append("'T'");
+            } else {
+                quoted.append(c);
             }
         }
+        return quoted.toString();
     }
-}
\ No newline at end of file
+}
@@ -29,17 +29,38 @@ public class FhirIdentifierFilter extends Filter {
         String type = params.length > 0 ? super.asString(params[0], context) : "MRN";
         
         Map<String, Object> identifier = new HashMap<>();
-        identifier.put("value", identifierValue);
-        identifier.put("system", SYSTEM_MAPPINGS.getOrDefault(type.toUpperCase(), "urn:oid:1.2.3.4.5"));
-        
-        // Format SSN
-        if ("SSN".equalsIgnoreCase(type) && identifierValue.matches("\\d{9}")) {
-            identifier.put("value", 
-                identifierValue.substring(0, 3) + "-" + 
-                identifierValue.substring(3, 5) + "-" + 
-                identifierValue.substring(5));
+        identifier.put("value", value(identifierValue, type));
+        identifier.put("system", system(type));
+        return identifier;
+    }
+    
+    /** The identifier system for a type such as SSN or MRN. */
+    public static String system(String type) {
+        return SYSTEM_MAPPINGS.getOrDefault(type.toUpperCase(), "urn:oid:1.2.3.4.5");
+    }
+    
+    /** The identifier value, formatted as ###-##-#### for an SSN of nine digits. */
+    public static String value(String value, String type) {
+        if ("SSN".equalsIgnoreCase(type)) {
+            String ssn = formatSsn(value);
+            if (ssn != null) {
+                return ssn;
+            }
         }
+        return value;
+    }
+    
+    /** Formats nine digits as ###-##-####, or returns null if the value isn't exactly nine digits. */
+    private static String formatSsn(String value) {
+        if (value.length() != 9) return null;
         
-        return identifier;
+        char[] formatted = new char[11];
+        for (int i = 0, j = 0; i < 9; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return null;
+            if (i == 3 || i == 5) formatted[j++] = '-';
+            formatted[j++] = c;
+        }
+        return new String(formatted);
     }
 }
\ No newline at end of file
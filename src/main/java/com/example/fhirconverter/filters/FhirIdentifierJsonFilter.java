@@ -0,0 +1,28 @@
+package com.example.fhirconverter.filters;
+
+import liqp.TemplateContext;
+import liqp.filters.Filter;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code {{ value | fhir_identifier_json: 'SSN' }}}: the same JSON as
+ * {@code fhir_identifier: 'SSN' | json}, written without building the identifier map.
+ */
+@Component
+public class FhirIdentifierJsonFilter extends Filter {
+    
+    public FhirIdentifierJsonFilter() {
+        super("fhir_identifier" + FusedJsonFilters.SUFFIX);
+    }
+    
+    @Override
+    public Object apply(Object value, TemplateContext context, Object... params) {
+        if (value == null) return "null";
+        
+        String type = params.length > 0 ? super.asString(params[0], context) : "MRN";
+        return new JsonFragment(96)
+            .field("system", FhirIdentifierFilter.system(type))
+            .field("value", FhirIdentifierFilter.value(super.asString(value, context), type))
+            .end();
+    }
+}
\ No newline at end of file
@@ -20,8 +20,12 @@ public class FhirNamePartsFilter extends Filter {
     public Object apply(Object value, TemplateContext context, Object... params) {
         if (value == null) return null;
         
-        String fullName = super.asString(value, context);
-        String[] parts = fullName.trim().split("\\s+");
+        return nameParts(super.asString(value, context));
+    }
+    
+    /** Splits a full name into the last part as {@code family} and the others as {@code given}. */
+    public static Map<String, Object> nameParts(String fullName) {
+        String[] parts = split(fullName);
         
         Map<String, Object> name = new HashMap<>();
         List<String> given = new ArrayList<>();
@@ -42,4 +46,9 @@ public class FhirNamePartsFilter extends Filter {
         
         return name;
     }
+    
+    /** The whitespace-separated parts of a full name; never empty. */
+    static String[] split(String fullName) {
+        return fullName.trim().split("\\s+");
+    }
 }
\ No newline at end of file
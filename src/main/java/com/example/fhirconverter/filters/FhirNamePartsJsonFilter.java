@@ -0,0 +1,29 @@
+package com.example.fhirconverter.filters;
+
+import liqp.TemplateContext;
+import liqp.filters.Filter;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code {{ full_name | fhir_name_parts_json }}}: the same JSON as
+ * {@code fhir_name_parts | json}, written without building the name map and given list.
+ */
+@Component
+public class FhirNamePartsJsonFilter extends Filter {
+    
+    public FhirNamePartsJsonFilter() {
+        super("fhir_name_parts" + FusedJsonFilters.SUFFIX);
+    }
+    
+    @Override
+    public Object apply(Object value, TemplateContext context, Object... params) {
+        if (value == null) return "null";
+        
+        String[] parts = FhirNamePartsFilter.split(super.asString(value, context));
+        JsonFragment name = new JsonFragment(64).field("family", parts[parts.length - 1]);
+        if (parts.length > 1) {
+            name.field("given", parts, 0, parts.length - 1);
+        }
+        return name.end();
+    }
+}
\ No newline at end of file
@@ -2,16 +2,31 @@ package com.example.fhirconverter.filters;
 
 import liqp.TemplateContext;
 import liqp.filters.Filter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+/**
+ * Builds a ContactPoint from a phone number, e.g. {@code {{ phone | fhir_phone: 'home' }}}.
+ * National numbers are formatted with the {@link PhoneNumberFormat} of the region given as the
+ * second parameter, or {@code fhir.converter.phone.default-region}; numbers with a leading
+ * {@code +} are only stripped of punctuation.
+ */
 @Component
 public class FhirPhoneFilter extends Filter {
     
-    public FhirPhoneFilter() {
+    private final Map<String, PhoneNumberFormat> formats = new HashMap<>();
+    private final String defaultRegion;
+    
+    public FhirPhoneFilter(List<PhoneNumberFormat> formats,
+                           @Value("${fhir.converter.phone.default-region:US}") String defaultRegion) {
         super("fhir_phone");
+        formats.forEach(format -> this.formats.put(format.region().toUpperCase(Locale.ROOT), format));
+        this.defaultRegion = defaultRegion.toUpperCase(Locale.ROOT);
     }
     
     @Override
@@ -20,26 +35,46 @@ public class FhirPhoneFilter extends Filter {
         
         String phone = super.asString(value, context);
         String use = params.length > 0 ? super.asString(params[0], context) : "home";
-        
-        // Clean phone number
-        String cleaned = phone.replaceAll("[^0-9+]", "");
-        
-        // Format US phone numbers
-        if (cleaned.matches("1?\\d{10}")) {
-            if (cleaned.startsWith("1")) {
-                cleaned = cleaned.substring(1);
-            }
-            cleaned = String.format("(%s) %s-%s", 
-                cleaned.substring(0, 3), 
-                cleaned.substring(3, 6), 
-                cleaned.substring(6));
-        }
+        String region = params.length > 1 ? super.asString(params[1], context).toUpperCase(Locale.ROOT) : defaultRegion;
         
         Map<String, Object> telecom = new HashMap<>();
         telecom.put("system", "phone");
-        telecom.put("value", cleaned);
+        telecom.put("value", normalize(phone, formats.get(region)));
         telecom.put("use", use);
         
         return telecom;
     }
+    
+    /** The number as {@code fhir_phone} formats it, in {@code region} or the default region when null. */
+    public String format(String phone, String region) {
+        return normalize(phone, formats.get(region != null ? region.toUpperCase(Locale.ROOT) : defaultRegion));
+    }
+    
+    /**
+     * Keeps digits and '+' in a single pass; national numbers (no '+') are then handed to the
+     * region's format, falling back to the cleaned digits when they don't fit it.
+     */
+    private static String normalize(String phone, PhoneNumberFormat format) {
+        char[] buffer = new char[phone.length()];
+        int length = 0;
+        boolean international = false;
+        
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                buffer[length++] = c;
+            } else if (c == '+') {
+                buffer[length++] = c;
+                international = true;
+            }
+        }
+        
+        if (!international && format != null) {
+            String formatted = format.format(buffer, length);
+            if (formatted != null) {
+                return formatted;
+            }
+        }
+        return length == phone.length() ? phone : new String(buffer, 0, length);
+    }
 }
\ No newline at end of file
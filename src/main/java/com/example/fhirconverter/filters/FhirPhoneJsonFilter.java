@@ -0,0 +1,33 @@
+package com.example.fhirconverter.filters;
+
+import liqp.TemplateContext;
+import liqp.filters.Filter;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code {{ phone | fhir_phone_json: 'home' }}}: the same JSON as
+ * {@code fhir_phone: 'home' | json}, written without building the ContactPoint map.
+ */
+@Component
+public class FhirPhoneJsonFilter extends Filter {
+    
+    private final FhirPhoneFilter phoneFilter;
+    
+    public FhirPhoneJsonFilter(FhirPhoneFilter phoneFilter) {
+        super("fhir_phone" + FusedJsonFilters.SUFFIX);
+        this.phoneFilter = phoneFilter;
+    }
+    
+    @Override
+    public Object apply(Object value, TemplateContext context, Object... params) {
+        if (value == null) return "null";
+        
+        String use = params.length > 0 ? super.asString(params[0], context) : "home";
+        String region = params.length > 1 ? super.asString(params[1], context) : null;
+        return new JsonFragment(64)
+            .field("system", "phone")
+            .field("value", phoneFilter.format(super.asString(value, context), region))
+            .field("use", use)
+            .end();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.fhirconverter.filters;
+
+import com.example.fhirconverter.terminology.UcumUnit;
+import com.example.fhirconverter.terminology.UcumUnits;
+import liqp.TemplateContext;
+import liqp.filters.Filter;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code {{ value | fhir_quantity: unit }}}: a Quantity with {@code value} and the UCUM unit
+ * {@link UcumUnits} normalizes {@code unit} to. With {@code 'canonical'} as second parameter a
+ * numeric value is converted to the canonical unit of its dimension, e.g. mg/dL to g/L.
+ */
+@Component
+public class FhirQuantityFilter extends Filter {
+    
+    private final UcumUnits units;
+    
+    public FhirQuantityFilter(UcumUnits units) {
+        super("fhir_quantity");
+        this.units = units;
+    }
+    
+    @Override
+    public Object apply(Object value, TemplateContext context, Object... params) {
+        if (value == null || params.length == 0) return value;
+        
+        String unit = super.asString(params[0], context);
+        boolean canonical = params.length > 1 && "canonical".equals(super.asString(params[1], context));
+        return quantity(value, unit, canonical);
+    }
+    
+    /** The Quantity map for {@code value} in {@code unit}, converted to the canonical unit if asked and possible. */
+    public Map<String, Object> quantity(Object value, String unit, boolean canonical) {
+        UcumUnit ucumUnit = canonical ? units.find(unit) : null;
+        BigDecimal number = ucumUnit != null && !ucumUnit.isCanonical() ? decimal(value) : null;
+        if (number != null) {
+            value = ucumUnit.toCanonical(number);
+            unit = ucumUnit.canonicalCode();
+        }
+        
+        Map<String, Object> quantity = new LinkedHashMap<>();
+        quantity.put("value", value);
+        quantity.putAll(units.quantityUnit(unit));
+        return quantity;
+    }
+    
+    private static BigDecimal decimal(Object value) {
+        try {
+            return new BigDecimal(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -1,42 +1,29 @@
 package com.example.fhirconverter.filters;
 
+import com.example.fhirconverter.terminology.UcumUnits;
 import liqp.TemplateContext;
 import liqp.filters.Filter;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * {@code {{ unit | fhir_unit }}}: the {@code unit}, {@code system} and {@code code} of a
+ * Quantity, with the UCUM code {@link UcumUnits} normalizes the unit to. The map is shared by
+ * every value in the same unit and must not be modified.
+ */
 @Component
 public class FhirUnitFilter extends Filter {
     
-    private static final Map<String, String> UNIT_MAPPINGS = Map.of(
-        "mg", "mg",
-        "milligram", "mg",
-        "g", "g",
-        "gram", "g",
-        "ml", "mL",
-        "milliliter", "mL",
-        "mmHg", "mm[Hg]",
-        "bpm", "/min"
-    );
+    private final UcumUnits units;
     
-    public FhirUnitFilter() {
+    public FhirUnitFilter(UcumUnits units) {
         super("fhir_unit");
+        this.units = units;
     }
     
     @Override
     public Object apply(Object value, TemplateContext context, Object... params) {
         if (value == null) return null;
         
-        String unit = super.asString(value, context);
-        String ucumCode = UNIT_MAPPINGS.getOrDefault(unit, unit);
-        
-        Map<String, Object> quantity = new HashMap<>();
-        quantity.put("unit", unit);
-        quantity.put("system", "http://unitsofmeasure.org");
-        quantity.put("code", ucumCode);
-        
-        return quantity;
+        return units.quantityUnit(super.asString(value, context));
     }
 }
\ No newline at end of file
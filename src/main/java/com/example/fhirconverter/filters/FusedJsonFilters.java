@@ -0,0 +1,41 @@
+package com.example.fhirconverter.filters;
+
+import liqp.filters.Filters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites {@code | fhir_phone: 'home' | json} in template source to
+ * {@code | fhir_phone_json: 'home'} for every filter that has a {@code _json} variant, so the
+ * JSON is written directly instead of building a map for {@code json} to serialize. Chains
+ * with other filters in between, or with a {@code |} inside the parameters, are left as they are.
+ */
+public final class FusedJsonFilters {
+
+    static final String SUFFIX = "_json";
+
+    private FusedJsonFilters() {
+    }
+
+    public static String fuse(String source, Filters filters) {
+        List<String> fusable = new ArrayList<>();
+        filters.getMap().keySet().forEach(name -> {
+            if (name.endsWith(SUFFIX) && filters.get(name.substring(0, name.length() - SUFFIX.length())) != null) {
+                fusable.add(Pattern.quote(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        });
+        if (fusable.isEmpty()) {
+            return source;
+        }
+
+        // | name[: params] | json, followed by another filter or the end of the tag
+        Pattern chain = Pattern.compile("\\|\\s*(" + String.join("|", fusable) + ")\\b(\\s*:[^|{}%]*?)?\\s*\\|\\s*json\\b"
+            + "(?=\\s*(\\||-?}}|-?%}))");
+        Matcher matcher = chain.matcher(source);
+        return matcher.replaceAll(match -> Matcher.quoteReplacement(
+            "| " + match.group(1) + SUFFIX + (match.group(2) != null ? match.group(2) : "")));
+    }
+}
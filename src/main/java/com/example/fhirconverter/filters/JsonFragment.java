@@ -0,0 +1,93 @@
+package com.example.fhirconverter.filters;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import liqp.TemplateContext;
+
+/**
+ * Writes the JSON object a {@code *_json} filter returns, field by field into one buffer, with
+ * the escaping {@code | json} applies to strings. No map or list is built for the value.
+ */
+final class JsonFragment {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder json;
+    private boolean empty = true;
+
+    JsonFragment(int capacity) {
+        json = new StringBuilder(capacity).append('{');
+    }
+
+    JsonFragment field(String name, String value) {
+        name(name);
+        string(json, value);
+        return this;
+    }
+
+    /** A string array field of {@code values[from..to)}. */
+    JsonFragment field(String name, String[] values, int from, int to) {
+        name(name);
+        json.append('[');
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            string(json, values[i]);
+        }
+        json.append(']');
+        return this;
+    }
+
+    String end() {
+        return json.append('}').toString();
+    }
+
+    private void name(String name) {
+        if (!empty) {
+            json.append(',');
+        }
+        empty = false;
+        string(json, name);
+        json.append(':');
+    }
+
+    /** What {@code | json} writes for a value the filter passes through unchanged. */
+    static String write(Object value, TemplateContext context) {
+        ObjectMapper mapper = context != null ? context.getParser().mapper : OBJECT_MAPPER;
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Value can't be written as JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                case '\b' -> json.append("\\b");
+                case '\f' -> json.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.fhirconverter.filters;
+
+/**
+ * Formats numbers by filling the {@code #} placeholders of a mask, e.g. {@code (###) ###-####}.
+ * A number with the trunk prefix in front of the expected digit count is accepted and the
+ * prefix dropped.
+ */
+public class MaskedPhoneNumberFormat implements PhoneNumberFormat {
+
+    private static final char PLACEHOLDER = '#';
+
+    private final String region;
+    private final String trunkPrefix;
+    private final char[] mask;
+    private final int digitCount;
+
+    public MaskedPhoneNumberFormat(String region, String trunkPrefix, String mask) {
+        this.region = region;
+        this.trunkPrefix = trunkPrefix == null ? "" : trunkPrefix;
+        this.mask = mask.toCharArray();
+
+        int count = 0;
+        for (char c : this.mask) {
+            if (c == PLACEHOLDER) count++;
+        }
+        this.digitCount = count;
+    }
+
+    @Override
+    public String region() {
+        return region;
+    }
+
+    @Override
+    public String format(char[] digits, int length) {
+        int offset = 0;
+        if (length == digitCount + trunkPrefix.length() && startsWithTrunkPrefix(digits)) {
+            offset = trunkPrefix.length();
+        } else if (length != digitCount) {
+            return null;
+        }
+
+        char[] formatted = new char[mask.length];
+        for (int i = 0, d = offset; i < mask.length; i++) {
+            formatted[i] = mask[i] == PLACEHOLDER ? digits[d++] : mask[i];
+        }
+        return new String(formatted);
+    }
+
+    private boolean startsWithTrunkPrefix(char[] digits) {
+        for (int i = 0; i < trunkPrefix.length(); i++) {
+            if (digits[i] != trunkPrefix.charAt(i)) return false;
+        }
+        return true;
+    }
+}
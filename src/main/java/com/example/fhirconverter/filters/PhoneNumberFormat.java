@@ -0,0 +1,20 @@
+package com.example.fhirconverter.filters;
+
+/**
+ * Country-specific display format used by {@code fhir_phone}. Register an implementation as a
+ * bean to support another region, e.g. {@code {{ phone | fhir_phone: 'mobile', 'GB' }}}.
+ */
+public interface PhoneNumberFormat {
+
+    /** Region code the format is selected by, e.g. {@code US}. */
+    String region();
+
+    /**
+     * Formats a national number.
+     *
+     * @param digits buffer holding the number's digits
+     * @param length number of digits in the buffer
+     * @return the formatted number, or null if the digits don't fit this format
+     */
+    String format(char[] digits, int length);
+}
@@ -0,0 +1,83 @@
+package com.example.fhirconverter.mapping;
+
+import ca.uhn.fhir.parser.DataFormatException;
+import org.hl7.fhir.r4.model.PrimitiveType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads input values the way templates do, so mappers match template output: truthiness as in
+ * {@code {% if %}}, emptiness as in the {@code default} filter, and primitive values accepted
+ * and rejected as HAPI's parser accepts and rejects them in JSON.
+ */
+final class InputValues {
+
+    private InputValues() {
+    }
+
+    /** {@code {% if value %}}: anything but null and false. */
+    static boolean truthy(Object value) {
+        return value != null && !Boolean.FALSE.equals(value);
+    }
+
+    /** {@code value | default: defaultValue}: replaces null, false, "" and empty collections. */
+    static Object orDefault(Object value, Object defaultValue) {
+        boolean empty = !truthy(value)
+            || value instanceof String s && s.isEmpty()
+            || value instanceof Collection<?> c && c.isEmpty()
+            || value instanceof Map<?, ?> m && m.isEmpty();
+        return empty ? defaultValue : value;
+    }
+
+    /** {@code value.key}, null unless value is an object. */
+    static Object get(Object value, String key) {
+        return value instanceof Map<?, ?> map ? map.get(key) : null;
+    }
+
+    static String string(Object value) {
+        return value == null ? null : value instanceof String s ? s : String.valueOf(value);
+    }
+
+    static String lowerCase(Object value) {
+        return value == null ? "" : string(value).toLowerCase(Locale.ROOT);
+    }
+
+    /** The elements a {@code {% for %}} loop visits. */
+    static List<?> list(Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        return truthy(value) ? List.of(value) : List.of();
+    }
+
+    /** A string array as {@code | json} writes it; a single value is one element. */
+    static List<String> strings(Object value) {
+        List<String> strings = new ArrayList<>();
+        for (Object element : list(value)) {
+            if (element != null) {
+                strings.add(string(element));
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Sets a primitive from its FHIR string form. Empty values are left unset and invalid ones
+     * fail the conversion, as they do when HAPI parses the same value from JSON.
+     */
+    static void set(PrimitiveType<?> target, Object value) {
+        String text = string(value);
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        try {
+            target.setValueAsString(text);
+        } catch (RuntimeException e) {
+            throw new DataFormatException("Invalid " + target.fhirType() + " value \"" + text + "\": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.fhirconverter.mapping;
+
+import com.example.fhirconverter.filters.FhirAddressFilter;
+import com.example.fhirconverter.filters.FhirCodeFilter;
+import com.example.fhirconverter.filters.FhirDateFilter;
+import com.example.fhirconverter.filters.FhirIdentifierFilter;
+import com.example.fhirconverter.filters.FhirNamePartsFilter;
+import com.example.fhirconverter.filters.FhirPhoneFilter;
+import com.example.fhirconverter.util.IdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.hl7.fhir.r4.model.Address;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.StringType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static com.example.fhirconverter.mapping.InputValues.get;
+import static com.example.fhirconverter.mapping.InputValues.list;
+import static com.example.fhirconverter.mapping.InputValues.lowerCase;
+import static com.example.fhirconverter.mapping.InputValues.orDefault;
+import static com.example.fhirconverter.mapping.InputValues.set;
+import static com.example.fhirconverter.mapping.InputValues.string;
+import static com.example.fhirconverter.mapping.InputValues.strings;
+import static com.example.fhirconverter.mapping.InputValues.truthy;
+
+/**
+ * {@code patient.liquid} as Java: reads the same input fields, applies the same {@code fhir_*}
+ * filter logic and builds the Patient HAPI would parse from the template's output.
+ */
+@Component
+@RequiredArgsConstructor
+public class PatientMapper implements ResourceMapper {
+
+    private static final String US_DATE = "MM/dd/yyyy";
+    private static final String FHIR_DATE = "yyyy-MM-dd";
+    private static final String OMB_SYSTEM = "urn:oid:2.16.840.1.113883.6.238";
+    private static final String RELATIONSHIP_SYSTEM = "http://terminology.hl7.org/CodeSystem/v2-0131";
+
+    private final FhirCodeFilter codeFilter;
+    private final FhirDateFilter dateFilter;
+    private final FhirPhoneFilter phoneFilter;
+    private final IdGenerator idGenerator;
+
+    @Override
+    public String resourceType() {
+        return "Patient";
+    }
+
+    @Override
+    public Patient map(Map<String, Object> in) {
+        Patient patient = new Patient();
+        Object id = orDefault(in.get("id"), null);
+        // Named like the template, so content-derived ids are the same either way
+        patient.setId(string(id != null ? id : idGenerator.newId("patient", in)));
+        patient.getMeta().addProfile("http://hl7.org/fhir/StructureDefinition/Patient");
+
+        mapIdentifiers(patient, in);
+        // Like the template's default filter, this also turns "active": false into true
+        set(patient.getActiveElement(), orDefault(in.get("active"), true));
+        mapNames(patient, in);
+
+        if (truthy(in.get("gender"))) {
+            set(patient.getGenderElement(), gender(in.get("gender")));
+        }
+        if (truthy(in.get("birth_date"))) {
+            set(patient.getBirthDateElement(), date(in.get("birth_date")));
+        } else if (truthy(in.get("date_of_birth"))) {
+            set(patient.getBirthDateElement(), date(in.get("date_of_birth")));
+        }
+        Object deceased = in.get("deceased");
+        if (Boolean.TRUE.equals(deceased) || "true".equals(deceased)) {
+            patient.setDeceased(new BooleanType(true));
+        }
+        if (truthy(in.get("deceased_date"))) {
+            DateTimeType deceasedDate = new DateTimeType();
+            set(deceasedDate, date(in.get("deceased_date")));
+            patient.setDeceased(deceasedDate);
+        }
+        if (truthy(in.get("marital_status"))) {
+            patient.getMaritalStatus().addCoding(coding("http://terminology.hl7.org/CodeSystem/v3-MaritalStatus",
+                codeFilter.code(string(in.get("marital_status")), "marital"),
+                orDefault(in.get("marital_status_display"), in.get("marital_status"))));
+        }
+
+        mapTelecom(patient, in);
+        mapAddresses(patient, in);
+        mapContacts(patient, in);
+        mapCommunication(patient, in);
+        mapExtensions(patient, in);
+        return patient;
+    }
+
+    private void mapIdentifiers(Patient patient, Map<String, Object> in) {
+        if (truthy(in.get("ssn"))) {
+            addIdentifier(patient, in.get("ssn"), "SSN");
+        }
+        if (truthy(in.get("mrn")) || truthy(in.get("medical_record_number"))) {
+            addIdentifier(patient, orDefault(in.get("mrn"), in.get("medical_record_number")), "MRN");
+        }
+        if (truthy(in.get("drivers_license"))) {
+            addIdentifier(patient, in.get("drivers_license"), "DL");
+        }
+        for (Object item : list(in.get("identifiers"))) {
+            Identifier identifier = patient.addIdentifier();
+            set(identifier.getSystemElement(), get(item, "system"));
+            set(identifier.getValueElement(), get(item, "value"));
+            if (truthy(get(item, "type"))) {
+                identifier.getType().addCoding(coding("http://terminology.hl7.org/CodeSystem/v2-0203",
+                    get(item, "type"), get(item, "type_display")));
+            }
+        }
+        if (truthy(in.get("identifier_value"))) {
+            Identifier identifier = patient.addIdentifier();
+            set(identifier.getSystemElement(), orDefault(in.get("identifier_system"), "urn:oid:1.2.3.4.5"));
+            set(identifier.getValueElement(), in.get("identifier_value"));
+        }
+    }
+
+    private static void addIdentifier(Patient patient, Object value, String type) {
+        if (value == null) {
+            return;
+        }
+        Identifier identifier = patient.addIdentifier();
+        set(identifier.getValueElement(), FhirIdentifierFilter.value(string(value), type));
+        set(identifier.getSystemElement(), FhirIdentifierFilter.system(type));
+    }
+
+    private void mapNames(Patient patient, Map<String, Object> in) {
+        if (truthy(in.get("full_name"))) {
+            nameParts(patient.addName(), string(in.get("full_name")));
+        } else if (truthy(in.get("names"))) {
+            for (Object item : list(in.get("names"))) {
+                HumanName name = patient.addName();
+                set(name.getUseElement(), orDefault(get(item, "use"), "official"));
+                set(name.getFamilyElement(), get(item, "family"));
+                strings(get(item, "given")).forEach(name::addGiven);
+                if (truthy(get(item, "prefix"))) {
+                    strings(get(item, "prefix")).forEach(name::addPrefix);
+                }
+                if (truthy(get(item, "suffix"))) {
+                    strings(get(item, "suffix")).forEach(name::addSuffix);
+                }
+                if (truthy(get(item, "period"))) {
+                    name.setPeriod(period(get(item, "period")));
+                }
+            }
+        } else {
+            HumanName name = patient.addName();
+            set(name.getUseElement(), "official");
+            set(name.getFamilyElement(), in.get("family_name"));
+            strings(in.get("given_names")).forEach(name::addGiven);
+        }
+    }
+
+    private static void nameParts(HumanName name, String fullName) {
+        Map<String, Object> parts = FhirNamePartsFilter.nameParts(fullName);
+        set(name.getFamilyElement(), parts.get("family"));
+        strings(parts.get("given")).forEach(name::addGiven);
+    }
+
+    private String gender(Object gender) {
+        return switch (lowerCase(gender)) {
+            case "m", "male" -> "male";
+            case "f", "female" -> "female";
+            case "o", "other" -> "other";
+            case "u", "unknown" -> "unknown";
+            default -> codeFilter.code(string(gender), "gender");
+        };
+    }
+
+    private void mapTelecom(Patient patient, Map<String, Object> in) {
+        if (truthy(in.get("phone"))) {
+            patient.addTelecom(phone(in.get("phone"), "home"));
+        }
+        if (truthy(in.get("mobile"))) {
+            patient.addTelecom(phone(in.get("mobile"), "mobile"));
+        }
+        if (truthy(in.get("work_phone"))) {
+            patient.addTelecom(phone(in.get("work_phone"), "work"));
+        }
+        if (truthy(in.get("fax"))) {
+            patient.addTelecom(contactPoint("fax", in.get("fax"), "work"));
+        }
+        if (truthy(in.get("email"))) {
+            patient.addTelecom(contactPoint("email", in.get("email"), "home"));
+        }
+        for (Object item : list(in.get("phones"))) {
+            patient.addTelecom(truthy(get(item, "number"))
+                ? phone(get(item, "number"), get(item, "use"))
+                : phone(item, "home"));
+        }
+        for (Object item : list(in.get("emails"))) {
+            patient.addTelecom(truthy(get(item, "address"))
+                ? contactPoint("email", get(item, "address"), orDefault(get(item, "use"), "home"))
+                : contactPoint("email", item, "home"));
+        }
+    }
+
+    private ContactPoint phone(Object number, Object use) {
+        return contactPoint("phone", phoneFilter.format(string(number), null), use);
+    }
+
+    private static ContactPoint contactPoint(String system, Object value, Object use) {
+        ContactPoint contactPoint = new ContactPoint();
+        set(contactPoint.getSystemElement(), system);
+        set(contactPoint.getValueElement(), value);
+        set(contactPoint.getUseElement(), use);
+        return contactPoint;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mapAddresses(Patient patient, Map<String, Object> in) {
+        Object simpleAddress = in.get("simple_address");
+        if (truthy(simpleAddress)) {
+            Object parsed = simpleAddress instanceof String line ? FhirAddressFilter.address(line) : simpleAddress;
+            if (parsed instanceof Map<?, ?> fields) {
+                patient.addAddress(fhirAddress((Map<String, Object>) fields));
+            }
+        } else if (truthy(in.get("addresses"))) {
+            for (Object item : list(in.get("addresses"))) {
+                Address address = address(item);
+                set(address.getTypeElement(), get(item, "type"));
+                if (truthy(get(item, "period"))) {
+                    address.setPeriod(period(get(item, "period")));
+                }
+                patient.addAddress(address);
+            }
+        } else if (truthy(in.get("address"))) {
+            patient.addAddress(address(in.get("address")));
+        }
+    }
+
+    /** An address object of the input, with snake_case fields and defaults as in the template. */
+    private static Address address(Object item) {
+        Address address = new Address();
+        set(address.getUseElement(), orDefault(get(item, "use"), "home"));
+        if (truthy(get(item, "lines"))) {
+            strings(get(item, "lines")).forEach(address::addLine);
+        } else if (truthy(get(item, "street"))) {
+            address.addLine(string(get(item, "street")));
+        }
+        set(address.getCityElement(), get(item, "city"));
+        set(address.getStateElement(), get(item, "state"));
+        set(address.getPostalCodeElement(), truthy(get(item, "postal_code")) ? get(item, "postal_code") : get(item, "postalCode"));
+        set(address.getCountryElement(), orDefault(get(item, "country"), "US"));
+        return address;
+    }
+
+    /** An address already in FHIR form, as {@code fhir_address} returns it. */
+    private static Address fhirAddress(Map<String, Object> fields) {
+        Address address = new Address();
+        set(address.getUseElement(), fields.get("use"));
+        set(address.getTypeElement(), fields.get("type"));
+        strings(fields.get("line")).forEach(address::addLine);
+        set(address.getCityElement(), fields.get("city"));
+        set(address.getStateElement(), fields.get("state"));
+        set(address.getPostalCodeElement(), fields.get("postalCode"));
+        set(address.getCountryElement(), fields.get("country"));
+        return address;
+    }
+
+    private void mapContacts(Patient patient, Map<String, Object> in) {
+        Object emergencyContact = in.get("emergency_contact");
+        if (truthy(emergencyContact)) {
+            Patient.ContactComponent contact = patient.addContact();
+            contact.addRelationship().addCoding(coding(RELATIONSHIP_SYSTEM, "C", "Emergency Contact"));
+            set(contact.getName().getTextElement(), get(emergencyContact, "name"));
+            if (truthy(get(emergencyContact, "phone"))) {
+                contact.addTelecom(phone(get(emergencyContact, "phone"), "mobile"));
+            }
+        }
+        for (Object item : list(in.get("contacts"))) {
+            Patient.ContactComponent contact = patient.addContact();
+            if (truthy(get(item, "relationship"))) {
+                contact.addRelationship().addCoding(coding(RELATIONSHIP_SYSTEM,
+                    orDefault(get(item, "relationship_code"), "N"), get(item, "relationship")));
+            }
+            if (truthy(get(item, "full_name"))) {
+                nameParts(contact.getName(), string(get(item, "full_name")));
+            } else {
+                set(contact.getName().getTextElement(), get(item, "name"));
+            }
+            if (truthy(get(item, "phone"))) {
+                contact.addTelecom(phone(get(item, "phone"), "home"));
+            }
+            if (truthy(get(item, "email"))) {
+                contact.addTelecom(contactPoint("email", get(item, "email"), null));
+            }
+        }
+    }
+
+    private static void mapCommunication(Patient patient, Map<String, Object> in) {
+        Object preferredLanguage = in.get("preferred_language");
+        if (truthy(preferredLanguage)) {
+            String code = lowerCase(preferredLanguage);
+            patient.addCommunication()
+                .setPreferred(true)
+                .getLanguage().addCoding(coding("urn:ietf:bcp:47",
+                    code.length() > 2 ? code.substring(0, 2) : code, preferredLanguage));
+        }
+        for (Object item : list(in.get("languages"))) {
+            Patient.PatientCommunicationComponent communication = patient.addCommunication();
+            communication.getLanguage().addCoding(coding("urn:ietf:bcp:47",
+                lowerCase(orDefault(get(item, "code"), item)), orDefault(get(item, "display"), item)));
+            if (truthy(get(item, "preferred"))) {
+                set(communication.getPreferredElement(), get(item, "preferred"));
+            }
+        }
+    }
+
+    private void mapExtensions(Patient patient, Map<String, Object> in) {
+        if (truthy(in.get("race"))) {
+            patient.addExtension(ombExtension("http://hl7.org/fhir/us/core/StructureDefinition/us-core-race", in.get("race")));
+        }
+        if (truthy(in.get("ethnicity"))) {
+            patient.addExtension(ombExtension("http://hl7.org/fhir/us/core/StructureDefinition/us-core-ethnicity", in.get("ethnicity")));
+        }
+        if (truthy(in.get("birth_sex"))) {
+            CodeType birthSex = new CodeType();
+            set(birthSex, codeFilter.code(string(in.get("birth_sex")), "gender"));
+            patient.addExtension("http://hl7.org/fhir/us/core/StructureDefinition/us-core-birthsex", birthSex);
+        }
+    }
+
+    /** A US Core race or ethnicity extension with an OMB category and its text. */
+    private static Extension ombExtension(String url, Object value) {
+        Extension extension = new Extension(url);
+        extension.addExtension("ombCategory",
+            coding(OMB_SYSTEM, orDefault(get(value, "code"), value), orDefault(get(value, "display"), value)));
+        StringType text = new StringType();
+        set(text, orDefault(orDefault(get(value, "text"), get(value, "display")), value));
+        extension.addExtension("text", text);
+        return extension;
+    }
+
+    private Period period(Object period) {
+        Period result = new Period();
+        set(result.getStartElement(), date(get(period, "start")));
+        if (truthy(get(period, "end"))) {
+            set(result.getEndElement(), date(get(period, "end")));
+        }
+        return result;
+    }
+
+    /** {@code value | fhir_date: 'MM/dd/yyyy', 'yyyy-MM-dd'} */
+    private String date(Object value) {
+        return value == null ? null : dateFilter.format(string(value), US_DATE, FHIR_DATE);
+    }
+
+    private static Coding coding(String system, Object code, Object display) {
+        Coding coding = new Coding();
+        set(coding.getSystemElement(), system);
+        set(coding.getCodeElement(), code);
+        set(coding.getDisplayElement(), display);
+        return coding;
+    }
+}
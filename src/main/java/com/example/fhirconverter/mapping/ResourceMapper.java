@@ -0,0 +1,19 @@
+package com.example.fhirconverter.mapping;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.Map;
+
+/**
+ * Builds a HAPI resource straight from {@code ConversionRequest.inputData}, without rendering
+ * and parsing JSON text. A mapper produces the same resource as its resource type's template;
+ * it is used instead of the template when its type is listed in
+ * {@code fhir.converter.direct-mapping.resource-types}.
+ */
+public interface ResourceMapper {
+
+    /** The resource type, and template name, this mapper replaces, e.g. {@code Patient}. */
+    String resourceType();
+
+    IBaseResource map(Map<String, Object> inputData);
+}
@@ -0,0 +1,53 @@
+package com.example.fhirconverter.mapping;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The mappers enabled by {@code fhir.converter.direct-mapping.resource-types}. Resource types
+ * that are not listed keep converting through their template.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ResourceMappers {
+
+    private final List<ResourceMapper> mappers;
+
+    @Value("${fhir.converter.direct-mapping.resource-types:}")
+    private Set<String> enabledResourceTypes;
+
+    private final Map<String, ResourceMapper> enabled = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        Map<String, ResourceMapper> available = new HashMap<>();
+        mappers.forEach(mapper -> available.put(mapper.resourceType().toLowerCase(Locale.ROOT), mapper));
+
+        for (String resourceType : enabledResourceTypes) {
+            ResourceMapper mapper = available.get(resourceType.trim().toLowerCase(Locale.ROOT));
+            if (mapper == null) {
+                throw new IllegalStateException("No direct mapper for resource type " + resourceType
+                    + ", available: " + available.keySet());
+            }
+            enabled.put(resourceType.trim().toLowerCase(Locale.ROOT), mapper);
+        }
+        if (!enabled.isEmpty()) {
+            log.info("Converting {} with direct mapping instead of templates", enabled.keySet());
+        }
+    }
+
+    /** The mapper for a requested resource type, or null to use its template. */
+    public ResourceMapper find(String resourceType) {
+        return resourceType == null || enabled.isEmpty() ? null : enabled.get(resourceType.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.fhirconverter.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchConversionRequest {
+    
+    @NotEmpty(message = "At least one request is required")
+    private List<@Valid ConversionRequest> requests;
+    
+    /**
+     * Whether the converted resources are also returned as one transaction Bundle in
+     * {@link BatchConversionResponse#getBundle()} instead of in each result's output.
+     */
+    private boolean bundle = false;
+}
@@ -0,0 +1,17 @@
+package com.example.fhirconverter.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchConversionResponse {
+    private int succeeded;
+    private int failed;
+    /** One result per request, in request order. */
+    private List<ConversionResponse> results;
+    /** The transaction Bundle of all converted resources, when requested and every request succeeded. */
+    private String bundle;
+}
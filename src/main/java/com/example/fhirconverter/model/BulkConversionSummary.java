@@ -0,0 +1,12 @@
+package com.example.fhirconverter.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BulkConversionSummary {
+    private long records;
+    private long succeeded;
+    private long failed;
+}
@@ -0,0 +1,32 @@
+package com.example.fhirconverter.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous NDJSON conversion job, persisted as the job's {@code status.json}.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversionJob {
+    
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    private String id;
+    private Status status;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant completedAt;
+    private long records;
+    private long succeeded;
+    private long failed;
+    private String error;
+}
@@ -1,5 +1,7 @@
 package com.example.fhirconverter.model;
 
+import com.example.fhirconverter.util.JsonObject;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -12,8 +14,25 @@ public class ConversionRequest {
     @NotBlank(message = "Resource type is required")
     private String resourceType;
     
+    /**
+     * Deserialized as a read-only, compact {@link JsonObject} rather than a LinkedHashMap. Rendering
+     * copies only its top-level fields into the template context; nested objects are read in place.
+     */
     @NotNull(message = "Input data is required")
+    @JsonDeserialize(using = JsonObject.Deserializer.class)
     private Map<String, Object> inputData;
     
     private boolean validate = false;
+    
+    /**
+     * Whether the rendered output is parsed into the HAPI model and re-encoded.
+     * When null, {@code fhir.converter.normalize-output} decides.
+     */
+    private Boolean normalize;
+    
+    /**
+     * For Bundles, whether entries are rendered with their own resource templates in parallel
+     * instead of through {@code bundle.liquid}. When null, {@code fhir.converter.bundle.parallel} decides.
+     */
+    private Boolean parallel;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.fhirconverter.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class FileConversionSummary {
+    private long records;
+    private long succeeded;
+    private long failed;
+    /** Records converted by an earlier, interrupted run and not converted again. */
+    private long resumedRecords;
+    private int shards;
+    private long elapsedMillis;
+    /** Throughput of this run, excluding resumed records. */
+    private double recordsPerSecond;
+}
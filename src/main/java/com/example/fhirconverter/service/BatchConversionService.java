@@ -0,0 +1,175 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.exception.ConversionException;
+import com.example.fhirconverter.exception.TemplateException;
+import com.example.fhirconverter.model.BatchConversionRequest;
+import com.example.fhirconverter.model.BatchConversionResponse;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.util.IdGenerator;
+import com.example.fhirconverter.util.WorkerThreads;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a list of {@link ConversionRequest}s in one call. Records are converted in parallel
+ * on a bounded pool shared by all batches, and answered together in request order. Optionally
+ * the converted resources are combined into one transaction Bundle.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchConversionService {
+
+    private final ConversionService conversionService;
+    private final ObjectMapper objectMapper;
+    private final IdGenerator idGenerator;
+
+    @Value("${fhir.converter.batch.parallelism:0}")
+    private int parallelism;
+
+    @Value("${fhir.converter.batch.max-records:1000}")
+    private int maxRecords;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void initExecutor() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // As for Bundle entries, a full queue makes the request thread convert records itself
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxRecords), WorkerThreads.factory("batch-record", virtualThreads),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public BatchConversionResponse convert(BatchConversionRequest batch) {
+        List<ConversionRequest> requests = batch.getRequests();
+        if (requests.size() > maxRecords) {
+            throw new ConversionException("A batch holds at most " + maxRecords + " requests, got " + requests.size());
+        }
+
+        List<Future<ConversionResponse>> futures = new ArrayList<>(requests.size());
+        for (ConversionRequest request : requests) {
+            futures.add(executor.submit(() -> conversionService.convert(request)));
+        }
+
+        List<ConversionResponse> results = new ArrayList<>(futures.size());
+        int succeeded = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            ConversionResponse result = await(futures.get(i), i);
+            results.add(result);
+            if (result.isSuccess()) {
+                succeeded++;
+            }
+        }
+        int failed = results.size() - succeeded;
+        log.info("Batch conversion finished: {} succeeded, {} failed", succeeded, failed);
+
+        BatchConversionResponse.BatchConversionResponseBuilder response = BatchConversionResponse.builder()
+            .succeeded(succeeded)
+            .failed(failed)
+            .results(results);
+        if (batch.isBundle() && failed == 0) {
+            response.bundle(transactionBundle(results));
+            // Each resource is sent once, inside the Bundle
+            results.forEach(result -> result.setOutput(null));
+        }
+        return response.build();
+    }
+
+    /**
+     * Wraps the converted resources in a transaction Bundle that POSTs each of them. The
+     * resources are copied into the Bundle as they were encoded, without parsing them again.
+     * The Bundle id and generated fullUrls come from the configured {@link IdGenerator}.
+     */
+    private String transactionBundle(List<ConversionResponse> results) {
+        List<String> resources = results.stream().map(ConversionResponse::getOutput).toList();
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            generator.writeStartObject();
+            generator.writeStringField("resourceType", "Bundle");
+            generator.writeStringField("id", idGenerator.newId("bundle", Map.of("entries", resources)));
+            generator.writeStringField("type", "transaction");
+            generator.writeStringField("timestamp", Instant.now().toString());
+            generator.writeArrayFieldStart("entry");
+            for (int i = 0; i < results.size(); i++) {
+                ConversionResponse result = results.get(i);
+                generator.writeStartObject();
+                generator.writeStringField("fullUrl", "urn:uuid:" + fullUrlUuid(result, i));
+                generator.writeFieldName("resource");
+                generator.writeRawValue(result.getOutput());
+                generator.writeObjectFieldStart("request");
+                generator.writeStringField("method", "POST");
+                generator.writeStringField("url", result.getResourceType());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * A {@code urn:uuid:} fullUrl must hold a UUID: the resource id when it is one, so references
+     * to {@code urn:uuid:<id>} resolve, otherwise a generated one. Every {@link IdGenerator}
+     * strategy makes UUIDs; the entry's position keeps {@code content} ids of identical entries
+     * apart.
+     */
+    private String fullUrlUuid(ConversionResponse result, int index) {
+        String resourceId = result.getResourceId();
+        if (resourceId != null && resourceId.length() == 36) {
+            try {
+                return UUID.fromString(resourceId).toString();
+            } catch (IllegalArgumentException e) {
+                // Not a UUID after all
+            }
+        }
+        return idGenerator.newId(result.getResourceType(), Map.of("index", index, "resource", result.getOutput()));
+    }
+
+    private static ConversionResponse await(Future<ConversionResponse> future, int index) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TemplateException("Interrupted while converting batch record " + index, e);
+        } catch (ExecutionException e) {
+            return ConversionResponse.builder()
+                .success(false)
+                .errors(List.of(String.valueOf(e.getCause().getMessage())))
+                .build();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.model.BulkConversionSummary;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.util.FhirParserPool;
+import com.example.fhirconverter.util.OperationOutcomes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Converts NDJSON streams of {@link ConversionRequest} lines into NDJSON FHIR resources.
+ * Records are read, converted and written one at a time so neither side is ever held in memory.
+ * A record that fails is written as an {@link OperationOutcome} line in its place.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BulkConversionService {
+
+    private final ConversionService conversionService;
+    private final ObjectMapper objectMapper;
+    private final FhirParserPool fhirJsonParsers;
+
+    public BulkConversionSummary convert(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+        long lineNumber = 0;
+        long succeeded = 0;
+        long failed = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            ConversionResponse response = convertLine(line);
+            if (response.isSuccess()) {
+                writeLine(writer, response.getOutput());
+                succeeded++;
+            } else {
+                writeLine(writer, fhirJsonParsers.encodeResourceToCompactString(toOperationOutcome(lineNumber, response.getErrors())));
+                failed++;
+            }
+            // Flush per record so clients receive each resource as soon as it is converted
+            writer.flush();
+        }
+
+        log.info("Bulk conversion finished: {} succeeded, {} failed", succeeded, failed);
+        return BulkConversionSummary.builder()
+            .records(succeeded + failed)
+            .succeeded(succeeded)
+            .failed(failed)
+            .build();
+    }
+
+    private ConversionResponse convertLine(String line) {
+        ConversionRequest request;
+        try {
+            request = objectMapper.readValue(line, ConversionRequest.class);
+        } catch (JsonProcessingException e) {
+            return failure("Invalid NDJSON record: " + e.getOriginalMessage());
+        }
+        return convertRecord(request);
+    }
+
+    /** Converts one record, checking the fields the controller's bean validation would check. */
+    ConversionResponse convertRecord(ConversionRequest request) {
+        if (request.getResourceType() == null || request.getResourceType().isBlank()) {
+            return failure("resourceType: Resource type is required");
+        }
+        if (request.getInputData() == null) {
+            return failure("inputData: Input data is required");
+        }
+        return conversionService.convert(request);
+    }
+
+    static ConversionResponse failure(String message) {
+        return ConversionResponse.builder()
+            .success(false)
+            .errors(List.of(message))
+            .build();
+    }
+
+    private static OperationOutcome toOperationOutcome(long lineNumber, List<String> errors) {
+        List<String> messages = errors == null || errors.isEmpty() ? List.of("Conversion failed") : errors;
+        return OperationOutcomes.processingErrors(messages.stream()
+            .map(message -> "Line " + lineNumber + ": " + message)
+            .toList());
+    }
+
+    /**
+     * Writes a JSON document as a single NDJSON line. Raw line breaks can only appear as
+     * insignificant whitespace in JSON (they are escaped inside strings), so dropping them
+     * keeps pretty-printed output valid.
+     */
+    private static void writeLine(Writer writer, String json) throws IOException {
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c != '\n' && c != '\r') {
+                writer.write(c);
+            }
+        }
+        writer.write('\n');
+    }
+}
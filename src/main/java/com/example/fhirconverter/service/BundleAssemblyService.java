@@ -0,0 +1,291 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.exception.TemplateException;
+import com.example.fhirconverter.mapping.ResourceMapper;
+import com.example.fhirconverter.mapping.ResourceMappers;
+import com.example.fhirconverter.model.ValidationResult;
+import com.example.fhirconverter.util.FhirParserPool;
+import com.example.fhirconverter.util.IdGenerator;
+import com.example.fhirconverter.util.OverlayMap;
+import com.example.fhirconverter.util.WorkerThreads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds Bundles from the same input as {@code bundle.liquid}, but renders each entry with the
+ * template of its own resource type and parses and validates entries in parallel on a bounded
+ * executor. Entries are stitched into the Bundle in input order; {@code fullUrl} and the
+ * transaction {@code request} are assigned with the same rules as the template.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BundleAssemblyService {
+
+    private static final List<String> ENTRY_ID_KEYS = List.of(
+        "resource_id", "patient_id", "observation_id", "encounter_id", "medication_request_id");
+
+    private final TemplateService templateService;
+    private final TemplateRegistry templateRegistry;
+    private final ResourceMappers resourceMappers;
+    private final FhirParserPool fhirJsonParsers;
+    private final ObjectMapper objectMapper;
+    private final IdGenerator idGenerator;
+
+    @Value("${fhir.converter.bundle.parallelism:0}")
+    private int parallelism;
+
+    @Value("${fhir.converter.bundle.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void initExecutor() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = WorkerThreads.factory("bundle-entry", virtualThreads);
+        // When the queue is full the submitting thread renders the entry itself, which throttles
+        // a huge Bundle instead of queueing all of it
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The assembled Bundle, or the errors of every entry that failed, each prefixed with
+     * {@code entry[i]}.
+     */
+    public record Assembly(Bundle bundle, List<String> errors) {
+
+        public boolean isSuccessful() {
+            return errors.isEmpty();
+        }
+    }
+
+    /** Assembles the Bundle of {@code inputData}, validating each entry with {@code validator} unless it is null. */
+    public Assembly assemble(Map<String, Object> inputData, Function<IBaseResource, ValidationResult> validator) {
+        String bundleType = stringValue(inputData.get("bundle_type"), "transaction");
+        boolean withRequests = "transaction".equals(bundleType) || "batch".equals(bundleType);
+        List<Map<String, Object>> entries = entries(inputData.get("entries"));
+
+        List<Future<EntryResult>> futures = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            int index = i;
+            futures.add(executor.submit(() -> convertEntry(entries.get(index), index, validator)));
+        }
+
+        Bundle bundle = new Bundle();
+        Object bundleId = inputData.get("id");
+        bundle.setId(bundleId != null ? bundleId.toString() : idGenerator.newId("bundle", inputData));
+        bundle.getTimestampElement().setValueAsString(stringValue(inputData.get("timestamp"), Instant.now().toString()));
+        if (inputData.get("total") != null) {
+            bundle.setTotal(Integer.parseInt(inputData.get("total").toString()));
+        }
+
+        List<String> errors = new ArrayList<>();
+        try {
+            bundle.setType(Bundle.BundleType.fromCode(bundleType));
+        } catch (Exception e) {
+            errors.add("bundle_type: " + e.getMessage());
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            EntryResult result = await(futures.get(i), i);
+            if (!result.errors().isEmpty()) {
+                errors.addAll(result.errors());
+                continue;
+            }
+
+            Map<String, Object> entry = entries.get(i);
+            Bundle.BundleEntryComponent component = bundle.addEntry()
+                .setFullUrl(fullUrl(entry, i))
+                .setResource(result.resource());
+            if (withRequests) {
+                component.getRequest()
+                    .setMethod(Bundle.HTTPVerb.fromCode(stringValue(entry.get("method"), "POST")))
+                    .setUrl(requestUrl(entry));
+            }
+        }
+
+        return new Assembly(bundle, errors);
+    }
+
+    private EntryResult convertEntry(Map<String, Object> entry, int index,
+                                     Function<IBaseResource, ValidationResult> validator) {
+        try {
+            Resource resource = mapEntry(entry);
+            if (resource == null) {
+                resource = (Resource) fhirJsonParsers.parseResource(renderEntry(entry, index));
+            }
+
+            if (validator != null) {
+                ValidationResult validationResult = validator.apply(resource);
+                if (!validationResult.isSuccessful()) {
+                    return EntryResult.failure(validationResult.getMessages().stream()
+                        .map(message -> "entry[" + index + "]: " + message)
+                        .toList());
+                }
+            }
+            return new EntryResult(resource, List.of());
+        } catch (Exception e) {
+            return EntryResult.failure(List.of("entry[" + index + "]: " + e.getMessage()));
+        }
+    }
+
+    /** Builds the entry with the direct mapper of its resource type, or returns null if it has none. */
+    private Resource mapEntry(Map<String, Object> entry) {
+        if (entry.get("resource") != null || entry.get("resource_type") == null) {
+            return null;
+        }
+        ResourceMapper mapper = resourceMappers.find(entry.get("resource_type").toString());
+        return mapper != null ? (Resource) mapper.map(entryData(entry)) : null;
+    }
+
+    private String renderEntry(Map<String, Object> entry, int index) throws JsonProcessingException {
+        Object resource = entry.get("resource");
+        if (resource != null) {
+            return objectMapper.writeValueAsString(resource);
+        }
+
+        Object type = entry.get("resource_type");
+        if (type == null) {
+            throw new IllegalArgumentException("Entry has neither resource nor resource_type");
+        }
+        String resourceType = type.toString();
+
+        String templateName = templateName(resourceType);
+        if (templateName == null) {
+            // Same minimal resource bundle.liquid emits for types it has no block for
+            Map<String, Object> minimal = new LinkedHashMap<>();
+            minimal.put("resourceType", resourceType);
+            Object id = entry.get("id");
+            minimal.put("id", id != null ? id.toString() : idGenerator.newId(resourceType, entry));
+            return objectMapper.writeValueAsString(minimal);
+        }
+        return templateService.renderTemplate(templateName, entryData(entry));
+    }
+
+    private static Map<String, Object> entryData(Map<String, Object> entry) {
+        String entryId = entryId(entry);
+        if (entryId == null || entry.get("id") != null) {
+            return entry;
+        }
+        // Keep the resource id in step with the fullUrl the entry is given
+        Map<String, Object> data = new OverlayMap(entry);
+        data.put("id", entryId);
+        return data;
+    }
+
+    /** Finds the template for a resource type, e.g. {@code medication-request} for MedicationRequest. */
+    private String templateName(String resourceType) {
+        String lowerCase = resourceType.toLowerCase(Locale.ROOT);
+        if (templateRegistry.getTemplateNames().contains(lowerCase)) {
+            return lowerCase;
+        }
+        String kebabCase = TemplateRegistry.kebabCase(resourceType);
+        return templateRegistry.getTemplateNames().contains(kebabCase) ? kebabCase : null;
+    }
+
+    private static EntryResult await(Future<EntryResult> future, int index) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TemplateException("Interrupted while assembling Bundle entry " + index, e);
+        } catch (ExecutionException e) {
+            return EntryResult.failure(List.of("entry[" + index + "]: " + e.getCause().getMessage()));
+        }
+    }
+
+    /** Same precedence as bundle.liquid: explicit fullUrl, then the entry's id, then its position. */
+    private static String fullUrl(Map<String, Object> entry, int index) {
+        if (entry.get("fullUrl") != null) {
+            return entry.get("fullUrl").toString();
+        }
+        if (entry.get("full_url") != null) {
+            return entry.get("full_url").toString();
+        }
+        String entryId = entryId(entry);
+        return "urn:uuid:" + (entryId != null ? entryId : "entry-" + (index + 1));
+    }
+
+    private static String entryId(Map<String, Object> entry) {
+        for (String key : ENTRY_ID_KEYS) {
+            Object value = entry.get(key);
+            if (value != null) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    private static String requestUrl(Map<String, Object> entry) {
+        if (entry.get("url") != null) {
+            return entry.get("url").toString();
+        }
+        if (entry.get("resource_type") != null) {
+            return entry.get("resource_type").toString();
+        }
+        if (entry.get("resource") instanceof Map<?, ?> resource && resource.get("resourceType") != null) {
+            return resource.get("resourceType").toString();
+        }
+        return "Resource";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> entries(Object entries) {
+        if (entries == null) {
+            return List.of();
+        }
+        if (!(entries instanceof List<?> list)) {
+            throw new IllegalArgumentException("entries must be an array");
+        }
+        List<Map<String, Object>> result = new ArrayList<>(list.size());
+        for (Object entry : list) {
+            result.add(entry instanceof Map<?, ?> ? (Map<String, Object>) entry : Map.of());
+        }
+        return result;
+    }
+
+    private static String stringValue(Object value, String defaultValue) {
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    private record EntryResult(Resource resource, List<String> errors) {
+
+        static EntryResult failure(List<String> errors) {
+            return new EntryResult(null, errors);
+        }
+    }
+}
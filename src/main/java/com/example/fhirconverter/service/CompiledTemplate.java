@@ -0,0 +1,26 @@
+package com.example.fhirconverter.service;
+
+import liqp.Template;
+import org.springframework.core.io.Resource;
+
+import java.time.Instant;
+
+/**
+ * A parsed Liquid template together with the source it was compiled from.
+ *
+ * @param name         template name, the lower-cased file name without {@code .liquid}
+ * @param template     the parsed template
+ * @param skeleton     the template prepared for rendering
+ * @param source       the raw template text
+ * @param resource     the resource the template was loaded from
+ * @param lastModified the resource's last-modified time when it was compiled, or 0 if unknown
+ * @param compiledAt   when the template was compiled
+ */
+public record CompiledTemplate(String name,
+                               Template template,
+                               TemplateSkeleton skeleton,
+                               String source,
+                               Resource resource,
+                               long lastModified,
+                               Instant compiledAt) {
+}
@@ -0,0 +1,263 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.model.BulkConversionSummary;
+import com.example.fhirconverter.model.ConversionJob;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.util.WorkerThreads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs NDJSON conversions asynchronously through {@link BulkConversionService}. The job directory
+ * is the queue: each job is a directory holding the streamed {@code input.ndjson}, the
+ * {@code output.ndjson} being written and a {@code status.json} that is replaced atomically on
+ * every state change. A job only exists once its status file does, so a submission cut short
+ * leaves nothing behind to run. Jobs that were queued or running when the application stopped
+ * are run again from the start on the next startup. Only the web application runs jobs, so an
+ * offline file conversion in the same directory never picks them up.
+ */
+@ConditionalOnWebApplication
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ConversionJobService {
+
+    private static final String INPUT_FILE = "input.ndjson";
+    private static final String OUTPUT_FILE = "output.ndjson";
+    private static final String STATUS_FILE = "status.json";
+
+    private final BulkConversionService bulkConversionService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${fhir.converter.jobs.directory:data/jobs}")
+    private Path directory;
+
+    @Value("${fhir.converter.jobs.workers:2}")
+    private int workers;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        ThreadFactory threadFactory = WorkerThreads.factory("conversion-job", virtualThreads);
+        // Only job ids are queued in memory; the jobs themselves are on disk
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), threadFactory);
+        recover();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Interrupted jobs stay RUNNING on disk and are run again on the next start
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a job for an NDJSON stream of {@link ConversionRequest} lines. The stream is copied
+     * to the job directory before this returns.
+     */
+    public ConversionJob submit(InputStream ndjson) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path jobDirectory = Files.createDirectories(directory.resolve(id));
+        try {
+            Path input = jobDirectory.resolve(INPUT_FILE);
+            Files.copy(ndjson, input);
+            return enqueue(id);
+        } catch (IOException | RuntimeException e) {
+            FileSystemUtils.deleteRecursively(jobDirectory);
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a job for a single request; its result is a one-line NDJSON file.
+     */
+    public ConversionJob submit(ConversionRequest request) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(request) + "\n").getBytes(StandardCharsets.UTF_8);
+        return submit(new ByteArrayInputStream(line));
+    }
+
+    public Optional<ConversionJob> find(String id) {
+        return jobDirectory(id).flatMap(this::readStatus);
+    }
+
+    /**
+     * The NDJSON output of a completed job.
+     */
+    public Optional<Path> resultFile(String id) {
+        return find(id)
+            .filter(job -> job.getStatus() == ConversionJob.Status.COMPLETED)
+            .map(job -> directory.resolve(job.getId()).resolve(OUTPUT_FILE));
+    }
+
+    /**
+     * Deletes a job that is not running, with its input and output.
+     *
+     * @return the deleted job, or empty if there is no such job
+     * @throws IllegalStateException if the job is running
+     */
+    public Optional<ConversionJob> delete(String id) throws IOException {
+        Optional<ConversionJob> job = find(id);
+        if (job.isPresent()) {
+            if (job.get().getStatus() == ConversionJob.Status.RUNNING) {
+                throw new IllegalStateException("Job " + id + " is running");
+            }
+            // A queued job whose directory is gone is skipped by the worker
+            FileSystemUtils.deleteRecursively(directory.resolve(job.get().getId()));
+        }
+        return job;
+    }
+
+    private ConversionJob enqueue(String id) throws IOException {
+        ConversionJob job = ConversionJob.builder()
+            .id(id)
+            .status(ConversionJob.Status.QUEUED)
+            .submittedAt(Instant.now())
+            .build();
+        writeStatus(job);
+        executor.execute(() -> run(id));
+        log.info("Queued conversion job {}", id);
+        return job;
+    }
+
+    private void recover() throws IOException {
+        List<ConversionJob> pending = new ArrayList<>();
+        try (Stream<Path> jobDirectories = Files.list(directory)) {
+            for (Path jobDirectory : jobDirectories.filter(Files::isDirectory).toList()) {
+                Optional<ConversionJob> job = readStatus(jobDirectory);
+                if (job.isEmpty()) {
+                    // Submission never completed
+                    FileSystemUtils.deleteRecursively(jobDirectory);
+                } else if (job.get().getStatus() == ConversionJob.Status.QUEUED
+                    || job.get().getStatus() == ConversionJob.Status.RUNNING) {
+                    pending.add(job.get());
+                }
+            }
+        }
+
+        pending.sort(Comparator.comparing(ConversionJob::getSubmittedAt));
+        for (ConversionJob job : pending) {
+            writeStatus(job.toBuilder().status(ConversionJob.Status.QUEUED).startedAt(null).build());
+            executor.execute(() -> run(job.getId()));
+        }
+        if (!pending.isEmpty()) {
+            log.info("Re-queued {} conversion jobs from {}", pending.size(), directory);
+        }
+    }
+
+    private void run(String id) {
+        Path jobDirectory = directory.resolve(id);
+        Optional<ConversionJob> queued = readStatus(jobDirectory);
+        if (queued.isEmpty() || queued.get().getStatus() != ConversionJob.Status.QUEUED) {
+            return;
+        }
+
+        ConversionJob job = queued.get().toBuilder()
+            .status(ConversionJob.Status.RUNNING)
+            .startedAt(Instant.now())
+            .build();
+        try {
+            writeStatus(job);
+            BulkConversionSummary summary;
+            try (InputStream input = Files.newInputStream(jobDirectory.resolve(INPUT_FILE));
+                 OutputStream output = Files.newOutputStream(jobDirectory.resolve(OUTPUT_FILE))) {
+                summary = bulkConversionService.convert(input, output);
+            }
+            writeStatus(job.toBuilder()
+                .status(ConversionJob.Status.COMPLETED)
+                .completedAt(Instant.now())
+                .records(summary.getRecords())
+                .succeeded(summary.getSucceeded())
+                .failed(summary.getFailed())
+                .build());
+            log.info("Conversion job {} completed: {} succeeded, {} failed", id, summary.getSucceeded(), summary.getFailed());
+        } catch (NoSuchFileException e) {
+            log.info("Conversion job {} was deleted before it finished", id);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Shutting down; left RUNNING so it is recovered
+                return;
+            }
+            log.error("Conversion job {} failed", id, e);
+            try {
+                writeStatus(job.toBuilder()
+                    .status(ConversionJob.Status.FAILED)
+                    .completedAt(Instant.now())
+                    .error(e.getMessage())
+                    .build());
+            } catch (IOException statusError) {
+                log.error("Could not record failure of conversion job {}", id, statusError);
+            }
+        }
+    }
+
+    /**
+     * Resolves a job id to its directory, refusing anything that is not a job id so the id
+     * can never reach outside the job directory.
+     */
+    private Optional<Path> jobDirectory(String id) {
+        try {
+            return Optional.of(directory.resolve(UUID.fromString(id).toString()));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<ConversionJob> readStatus(Path jobDirectory) {
+        Path status = jobDirectory.resolve(STATUS_FILE);
+        try (InputStream is = Files.newInputStream(status)) {
+            return Optional.of(objectMapper.readValue(is, ConversionJob.class));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable job status " + status, e);
+        }
+    }
+
+    private void writeStatus(ConversionJob job) throws IOException {
+        Path jobDirectory = directory.resolve(job.getId());
+        Path temporary = jobDirectory.resolve(STATUS_FILE + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), job);
+        try {
+            Files.move(temporary, jobDirectory.resolve(STATUS_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, jobDirectory.resolve(STATUS_FILE), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
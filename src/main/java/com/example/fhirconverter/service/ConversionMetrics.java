@@ -0,0 +1,265 @@
+package com.example.fhirconverter.service;
+
+import ca.uhn.fhir.context.FhirContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Micrometer instrumentation of {@link ConversionService}, published on {@code /actuator/metrics}
+ * and {@code /actuator/prometheus}:
+ * <ul>
+ *   <li>{@code fhir.conversion.stage} - timer per stage (render, map, scan, parse, validate, assemble, encode)</li>
+ *   <li>{@code fhir.conversion} - timer of the whole conversion, tagged with its outcome</li>
+ *   <li>{@code fhir.conversion.failures} - counter of failed conversions by the stage they failed in</li>
+ *   <li>{@code fhir.conversion.allocated} - bytes allocated by the converting thread, for a sample of conversions</li>
+ * </ul>
+ * All are tagged with {@code resource.type} and {@code template}. Tag values are limited to FHIR
+ * resource types and template names, everything else is {@code unknown}, so request input can
+ * not create new time series.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ConversionMetrics {
+
+    public enum Stage {
+        RENDER, MAP, SCAN, PARSE, VALIDATE, ASSEMBLE, ENCODE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+    private final TemplateRegistry templateRegistry;
+    private final FhirContext fhirContext;
+
+    /** Fraction of conversions whose allocated bytes are measured; 0 turns sampling off. */
+    @Value("${fhir.converter.metrics.allocation-sample-rate:0}")
+    private double allocationSampleRate;
+
+    private Map<String, String> resourceTypesByLowerCase;
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    /** Meters by template, then resource type; both are bounded sets of names. */
+    private final Map<String, Map<String, Meters>> meters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        resourceTypesByLowerCase = fhirContext.getResourceTypes().stream()
+            .collect(Collectors.toUnmodifiableMap(type -> type.toLowerCase(Locale.ROOT), Function.identity()));
+
+        if (allocationSampleRate > 0) {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                threadMXBean = bean;
+            } else {
+                log.warn("Per-thread allocation measurement is not available; fhir.conversion.allocated is not recorded");
+            }
+        }
+    }
+
+    /**
+     * Starts recording a conversion requested for {@code requestedType}. The recording is used by
+     * one thread and must end with {@link Recording#succeeded} or {@link Recording#failed}.
+     */
+    public Recording start(String requestedType) {
+        String key = requestedType == null ? "" : requestedType.toLowerCase(Locale.ROOT);
+        String template = templateName(key, requestedType);
+        boolean sampleAllocation = threadMXBean != null
+            && ThreadLocalRandom.current().nextDouble() < allocationSampleRate;
+        return new Recording(template, resourceTypesByLowerCase.getOrDefault(key, UNKNOWN), sampleAllocation, true);
+    }
+
+    /** A recording that publishes nothing, for conversions that are not traffic, such as the warm-up. */
+    public Recording unrecorded() {
+        return new Recording(UNKNOWN, UNKNOWN, false, false);
+    }
+
+    /** The template {@link TemplateRegistry#get} finds for the requested type, or {@code unknown}. */
+    private String templateName(String key, String requestedType) {
+        Set<String> templates = templateRegistry.getTemplateNames();
+        if (templates.contains(key)) {
+            return key;
+        }
+        String kebabCase = requestedType == null ? key : TemplateRegistry.kebabCase(requestedType);
+        return templates.contains(kebabCase) ? kebabCase : UNKNOWN;
+    }
+
+    private Meters meters(String template, String resourceType) {
+        Map<String, Meters> byResourceType = meters.get(template);
+        if (byResourceType == null) {
+            byResourceType = meters.computeIfAbsent(template, key -> new ConcurrentHashMap<>());
+        }
+        Meters found = byResourceType.get(resourceType);
+        return found != null ? found : byResourceType.computeIfAbsent(resourceType,
+            key -> new Meters(Tags.of("resource.type", resourceType, "template", template)));
+    }
+
+    /**
+     * The meters of one (template, resource type) pair, registered once so a conversion doesn't
+     * look them up in the registry. Stage meters are registered when a stage first runs, so
+     * stages a template never reaches don't publish empty series.
+     */
+    private final class Meters {
+
+        private final Tags tags;
+        private final Timer succeeded;
+        private final Timer failed;
+        private final Timer[] stages = new Timer[Stage.values().length];
+        private final Counter[] failures = new Counter[Stage.values().length];
+        private volatile DistributionSummary allocated;
+
+        private Meters(Tags tags) {
+            this.tags = tags;
+            this.succeeded = conversionTimer("success");
+            this.failed = conversionTimer("failure");
+        }
+
+        // Unsynchronized: two threads racing on an empty slot both get the same registered meter
+
+        Timer stage(Stage stage) {
+            Timer timer = stages[stage.ordinal()];
+            if (timer == null) {
+                timer = Timer.builder("fhir.conversion.stage")
+                    .description("Time spent in one stage of a conversion")
+                    .tags(tags)
+                    .tag("stage", stage.tag)
+                    .register(meterRegistry);
+                stages[stage.ordinal()] = timer;
+            }
+            return timer;
+        }
+
+        Counter failures(Stage stage) {
+            Counter counter = failures[stage.ordinal()];
+            if (counter == null) {
+                counter = Counter.builder("fhir.conversion.failures")
+                    .description("Failed conversions by the stage they failed in")
+                    .tags(tags)
+                    .tag("stage", stage.tag)
+                    .register(meterRegistry);
+                failures[stage.ordinal()] = counter;
+            }
+            return counter;
+        }
+
+        DistributionSummary allocated() {
+            DistributionSummary summary = allocated;
+            if (summary == null) {
+                summary = DistributionSummary.builder("fhir.conversion.allocated")
+                    .description("Bytes allocated by the converting thread during a sampled conversion")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(meterRegistry);
+                allocated = summary;
+            }
+            return summary;
+        }
+
+        private Timer conversionTimer(String outcome) {
+            return Timer.builder("fhir.conversion")
+                .description("Time of a whole conversion")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+
+    public final class Recording {
+
+        private final String template;
+        private final boolean recorded;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+        private final long[] stageNanos = new long[Stage.values().length];
+        private final boolean[] stageRan = new boolean[Stage.values().length];
+        private String resourceType;
+        private Stage stage;
+        private long stageStartNanos;
+
+        private Recording(String template, String resourceType, boolean sampleAllocation, boolean recorded) {
+            this.template = template;
+            this.resourceType = resourceType;
+            this.recorded = recorded;
+            this.startAllocatedBytes = sampleAllocation ? threadMXBean.getCurrentThreadAllocatedBytes() : -1;
+            this.startNanos = System.nanoTime();
+            this.stageStartNanos = startNanos;
+        }
+
+        /** Ends the current stage, if any, and starts {@code next}. */
+        public void stage(Stage next) {
+            long now = System.nanoTime();
+            endStage(now);
+            stage = next;
+            stageStartNanos = now;
+        }
+
+        /**
+         * The conversion produced a resource of {@code producedType}, or of the requested type
+         * when null.
+         */
+        public void succeeded(String producedType) {
+            finish(producedType, null);
+        }
+
+        /** The conversion failed in the current stage. */
+        public void failed(String producedType) {
+            Stage failedStage = stage != null ? stage : Stage.RENDER;
+            finish(producedType, failedStage);
+        }
+
+        private void finish(String producedType, Stage failedStage) {
+            long now = System.nanoTime();
+            endStage(now);
+            if (!recorded) {
+                return;
+            }
+            if (producedType != null) {
+                resourceType = resourceTypesByLowerCase.getOrDefault(producedType.toLowerCase(Locale.ROOT), UNKNOWN);
+            }
+            Meters meters = meters(template, resourceType);
+
+            for (Stage recorded : Stage.values()) {
+                if (stageRan[recorded.ordinal()]) {
+                    meters.stage(recorded).record(stageNanos[recorded.ordinal()], TimeUnit.NANOSECONDS);
+                }
+            }
+            (failedStage == null ? meters.succeeded : meters.failed).record(now - startNanos, TimeUnit.NANOSECONDS);
+
+            if (failedStage != null) {
+                meters.failures(failedStage).increment();
+            }
+            if (startAllocatedBytes >= 0) {
+                meters.allocated().record(threadMXBean.getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+            }
+        }
+
+        private void endStage(long now) {
+            if (stage != null) {
+                stageNanos[stage.ordinal()] += now - stageStartNanos;
+                stageRan[stage.ordinal()] = true;
+                stage = null;
+            }
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.example.fhirconverter.service;
 
 import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
+import com.example.fhirconverter.mapping.ResourceMapper;
+import com.example.fhirconverter.mapping.ResourceMappers;
 import com.example.fhirconverter.model.ConversionRequest;
 import com.example.fhirconverter.model.ConversionResponse;
 import com.example.fhirconverter.model.ValidationResult;
+import com.example.fhirconverter.util.FhirJsonScanner;
+import com.example.fhirconverter.util.FhirParserPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -19,27 +29,104 @@ public class ConversionService {
     
     private final TemplateService templateService;
     private final ValidationService validationService;
+    private final BundleAssemblyService bundleAssemblyService;
+    private final ConversionMetrics conversionMetrics;
+    private final ResourceMappers resourceMappers;
     private final FhirContext fhirContext;
-    private final IParser fhirJsonParser;
+    private final FhirParserPool fhirJsonParsers;
+    
+    @Value("${fhir.converter.normalize-output:true}")
+    private boolean normalizeByDefault;
+    
+    @Value("${fhir.converter.bundle.parallel:false}")
+    private boolean parallelBundleByDefault;
+    
+    private volatile Set<String> knownResourceTypes;
     
     public ConversionResponse convert(ConversionRequest request) {
+        return convert(request, null, conversionMetrics.start(request.getResourceType()), validationService::validate);
+    }
+    
+    /**
+     * Writes the converted resource as raw FHIR JSON to {@code out} instead of returning it in
+     * {@link ConversionResponse#getOutput()}. Without validation or normalization the rendered
+     * text is checked like the {@link #convert(ConversionRequest)} fast path and then written to
+     * {@code out}; otherwise it is only held until HAPI has parsed it and the resource is encoded
+     * directly into {@code out}. Resources of a directly
+     * mapped type are always encoded by HAPI. Validation failures are
+     * reported before anything is written. The caller flushes {@code out}.
+     */
+    public ConversionResponse convert(ConversionRequest request, Writer out) {
+        return convert(request, Objects.requireNonNull(out), conversionMetrics.start(request.getResourceType()),
+            validationService::validate);
+    }
+    
+    /**
+     * Converts like {@link #convert(ConversionRequest)}, but records no metrics and validates
+     * without the result cache, so warm-up samples don't show up as traffic.
+     */
+    public ConversionResponse warmUp(ConversionRequest request) {
+        return convert(request, null, conversionMetrics.unrecorded(), validationService::validateUnrecorded);
+    }
+    
+    /**
+     * The conversion pipeline of the public methods. The resource is written to {@code out}, or
+     * returned as the response output when it is null.
+     */
+    private ConversionResponse convert(ConversionRequest request, Writer out, ConversionMetrics.Recording metrics,
+                                       Function<IBaseResource, ValidationResult> validator) {
         try {
-            // Load and render template
-            String renderedJson = templateService.renderTemplate(
-                request.getResourceType(), 
-                request.getInputData()
-            );
-            
-            // Debug: Log the raw rendered JSON
-            log.debug("Raw rendered JSON from template:\n{}", renderedJson);
+            if (isParallelBundle(request)) {
+                return convertBundle(request, out, metrics, request.isValidate() ? validator : null);
+            }
             
-            // Parse to FHIR resource
-            IBaseResource resource = fhirJsonParser.parseResource(renderedJson);
+            IBaseResource resource;
+            ResourceMapper mapper = resourceMappers.find(request.getResourceType());
+            if (mapper != null) {
+                // Built straight from the input, there is no JSON text to render or parse
+                metrics.stage(ConversionMetrics.Stage.MAP);
+                resource = mapper.map(request.getInputData());
+            } else {
+                // Load and render template
+                metrics.stage(ConversionMetrics.Stage.RENDER);
+                String renderedJson = templateService.renderTemplate(
+                    request.getResourceType(), 
+                    request.getInputData()
+                );
+                
+                // Debug: Log the raw rendered JSON
+                log.debug("Raw rendered JSON from template:\n{}", renderedJson);
+                
+                if (!request.isValidate() && !isNormalize(request)) {
+                    // Return the rendered output as-is after a structural check, skipping the HAPI
+                    // parse and re-encode. It is checked before any of it is written, so output
+                    // that isn't a resource is rejected instead of sent with status 200
+                    metrics.stage(ConversionMetrics.Stage.SCAN);
+                    FhirJsonScanner.ResourceHeader header = FhirJsonScanner.scan(renderedJson, getKnownResourceTypes());
+                    ConversionResponse.ConversionResponseBuilder response = ConversionResponse.builder()
+                        .success(true)
+                        .resourceType(header.resourceType())
+                        .resourceId(header.id());
+                    if (out != null) {
+                        out.write(renderedJson);
+                    } else {
+                        response.output(renderedJson);
+                    }
+                    metrics.succeeded(header.resourceType());
+                    return response.build();
+                }
+                
+                // Parse to FHIR resource
+                metrics.stage(ConversionMetrics.Stage.PARSE);
+                resource = fhirJsonParsers.parseResource(renderedJson);
+            }
             
             // Validate if enabled
             if (request.isValidate()) {
-                ValidationResult validationResult = validationService.validate(resource);
+                metrics.stage(ConversionMetrics.Stage.VALIDATE);
+                ValidationResult validationResult = validator.apply(resource);
                 if (!validationResult.isSuccessful()) {
+                    metrics.failed(resource.fhirType());
                     return ConversionResponse.builder()
                         .success(false)
                         .errors(validationResult.getMessages())
@@ -48,21 +135,79 @@ public class ConversionService {
             }
             
             // Serialize back to JSON
-            String outputJson = fhirJsonParser.encodeResourceToString(resource);
-            
-            return ConversionResponse.builder()
+            ConversionResponse.ConversionResponseBuilder response = ConversionResponse.builder()
                 .success(true)
                 .resourceType(resource.fhirType())
-                .resourceId(resource.getIdElement().getIdPart())
-                .output(outputJson)
-                .build();
+                .resourceId(resource.getIdElement().getIdPart());
+            metrics.stage(ConversionMetrics.Stage.ENCODE);
+            encode(resource, out, response);
+            metrics.succeeded(resource.fhirType());
+            return response.build();
                 
         } catch (Exception e) {
             log.error("Conversion failed", e);
+            metrics.failed(null);
             return ConversionResponse.builder()
                 .success(false)
                 .errors(List.of(e.getMessage()))
                 .build();
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Assembles a Bundle from entries converted in parallel by {@link BundleAssemblyService}.
+     * The Bundle is written to {@code out}, or returned as the response output when it is null.
+     */
+    private ConversionResponse convertBundle(ConversionRequest request, Writer out, ConversionMetrics.Recording metrics,
+                                             Function<IBaseResource, ValidationResult> validator) throws IOException {
+        metrics.stage(ConversionMetrics.Stage.ASSEMBLE);
+        BundleAssemblyService.Assembly assembly = bundleAssemblyService.assemble(request.getInputData(), validator);
+        if (!assembly.isSuccessful()) {
+            metrics.failed(null);
+            return ConversionResponse.builder()
+                .success(false)
+                .errors(assembly.errors())
+                .build();
+        }
+        
+        Bundle bundle = assembly.bundle();
+        ConversionResponse.ConversionResponseBuilder response = ConversionResponse.builder()
+            .success(true)
+            .resourceType(bundle.fhirType())
+            .resourceId(bundle.getIdElement().getIdPart());
+        metrics.stage(ConversionMetrics.Stage.ENCODE);
+        encode(bundle, out, response);
+        metrics.succeeded(bundle.fhirType());
+        return response.build();
+    }
+    
+    /** Encodes {@code resource} into {@code out}, or into the response output when it is null. */
+    private void encode(IBaseResource resource, Writer out,
+                        ConversionResponse.ConversionResponseBuilder response) throws IOException {
+        if (out != null) {
+            fhirJsonParsers.encodeResourceToWriter(resource, out);
+        } else {
+            response.output(fhirJsonParsers.encodeResourceToString(resource));
+        }
+    }
+    
+    private boolean isParallelBundle(ConversionRequest request) {
+        if (!"Bundle".equalsIgnoreCase(request.getResourceType())) {
+            return false;
+        }
+        return request.getParallel() != null ? request.getParallel() : parallelBundleByDefault;
+    }
+    
+    private boolean isNormalize(ConversionRequest request) {
+        return request.getNormalize() != null ? request.getNormalize() : normalizeByDefault;
+    }
+
+    private Set<String> getKnownResourceTypes() {
+        Set<String> types = knownResourceTypes;
+        if (types == null) {
+            types = Set.copyOf(fhirContext.getResourceTypes());
+            knownResourceTypes = types;
+        }
+        return types;
+    }
+}
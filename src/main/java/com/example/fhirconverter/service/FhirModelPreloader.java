@@ -0,0 +1,77 @@
+package com.example.fhirconverter.service;
+
+import ca.uhn.fhir.context.FhirContext;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans HAPI's model of the resource types that have templates at startup. The FhirContext
+ * defers scanning, so types no template produces are never scanned, but without this the first
+ * conversion of each templated type would pay for scanning it and its datatypes.
+ * <p>
+ * A template serves the resource type its name is the lower- or kebab-case form of, e.g.
+ * {@code medication-request} serves MedicationRequest; a variant such as {@code patient-simple}
+ * serves the type its name starts with.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FhirModelPreloader {
+
+    /** Resource types that conversions produce whatever the templates are. */
+    private static final Set<String> ALWAYS_USED = Set.of("Bundle", "OperationOutcome");
+
+    private final FhirContext fhirContext;
+    private final TemplateRegistry templateRegistry;
+
+    @Value("${fhir.converter.fhir-context.preload-template-types:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    void preload() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Set<String> resourceTypes = templatedResourceTypes();
+        for (String resourceType : resourceTypes) {
+            fhirContext.getResourceDefinition(resourceType);
+        }
+        log.info("Scanned the HAPI model of {} in {} ms", resourceTypes,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /** The resource types served by the compiled templates, and those always used. */
+    public Set<String> templatedResourceTypes() {
+        Map<String, String> byTemplateName = new HashMap<>();
+        for (String resourceType : fhirContext.getResourceTypes()) {
+            byTemplateName.put(resourceType.toLowerCase(Locale.ROOT), resourceType);
+            byTemplateName.put(TemplateRegistry.kebabCase(resourceType), resourceType);
+        }
+
+        Set<String> resourceTypes = new TreeSet<>(ALWAYS_USED);
+        for (String templateName : templateRegistry.getTemplateNames()) {
+            // Drop trailing -variant parts until a resource type matches
+            String name = templateName;
+            String resourceType = byTemplateName.get(name);
+            while (resourceType == null && name.lastIndexOf('-') > 0) {
+                name = name.substring(0, name.lastIndexOf('-'));
+                resourceType = byTemplateName.get(name);
+            }
+            if (resourceType != null) {
+                resourceTypes.add(resourceType);
+            }
+        }
+        return resourceTypes;
+    }
+}
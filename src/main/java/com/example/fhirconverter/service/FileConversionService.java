@@ -0,0 +1,568 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.exception.ConversionException;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.model.FileConversionSummary;
+import com.example.fhirconverter.util.FhirParserPool;
+import com.example.fhirconverter.util.OperationOutcomes;
+import com.example.fhirconverter.util.WorkerThreads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Converts a large NDJSON file, or a JSON array, of {@link ConversionRequest}s offline, file to
+ * file. The input is read through memory-mapped windows and split into records in place; each
+ * record is parsed straight from the mapped bytes. The file is divided into one contiguous range
+ * of records per shard, and the shards are converted in parallel, each into its own
+ * {@code <input>-NNN.ndjson} written through a direct buffer. Concatenated in shard order, the
+ * output files hold one line per input record, in input order; failed records are
+ * OperationOutcome lines.
+ * <p>
+ * Every shard checkpoints its input offset and output length to {@code <input>.checkpoint.json}
+ * after it has forced its output to disk. A run that finds a checkpoint for the same input
+ * resumes each shard from there, dropping output written after the checkpoint.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FileConversionService {
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint.json";
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+    private static final int SCAN_CHUNK_SIZE = 1 << 16;
+
+    private final BulkConversionService bulkConversionService;
+    private final ObjectMapper objectMapper;
+    private final FhirParserPool fhirJsonParsers;
+
+    /** Shards converted in parallel (0 = available processors). */
+    @Value("${fhir.converter.file-conversion.shards:0}")
+    private int shards;
+
+    @Value("${fhir.converter.file-conversion.checkpoint-interval:10000}")
+    private int checkpointInterval;
+
+    /** Largest part of the input mapped at once; also the largest record that can be read. */
+    @Value("${fhir.converter.file-conversion.map-window:1GB}")
+    private DataSize mapWindow;
+
+    @Value("${fhir.converter.file-conversion.progress-interval:10s}")
+    private Duration progressInterval;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Progress of one shard: its input range, the offset of its next record, and the length of
+     * its output file up to that record.
+     */
+    public record ShardState(int shard, long start, long end, long position, long outputBytes,
+                             long records, long failed) {
+    }
+
+    /** Saved progress of a conversion; only resumed for an input of the same size and modification time. */
+    public record Checkpoint(String input, long inputSize, long inputModified, List<ShardState> shards) {
+    }
+
+    public FileConversionSummary convert(Path input, Path outputDirectory) throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(outputDirectory);
+        String baseName = baseName(input);
+        Path checkpointFile = outputDirectory.resolve(baseName + CHECKPOINT_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long modified = Files.getLastModifiedTime(input).toMillis();
+
+            boolean jsonArray = isJsonArray(channel, size);
+            Checkpoint checkpoint = readCheckpoint(checkpointFile, size, modified);
+            if (checkpoint == null) {
+                deleteOutputs(outputDirectory, baseName);
+                checkpoint = new Checkpoint(input.toAbsolutePath().toString(), size, modified, plan(channel, size, jsonArray));
+            } else {
+                log.info("Resuming conversion of {} from {}", input, checkpointFile);
+            }
+
+            Run run = new Run(channel, jsonArray, outputDirectory, baseName, checkpointFile, checkpoint);
+            long resumed = run.records();
+            run.save(null);
+            run.convert();
+            Files.deleteIfExists(checkpointFile);
+
+            long elapsedNanos = System.nanoTime() - started;
+            long records = run.records();
+            long failed = run.failed();
+            FileConversionSummary summary = FileConversionSummary.builder()
+                .records(records)
+                .succeeded(records - failed)
+                .failed(failed)
+                .resumedRecords(resumed)
+                .shards(checkpoint.shards().size())
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .recordsPerSecond(elapsedNanos > 0 ? (records - resumed) * 1e9 / elapsedNanos : 0)
+                .build();
+            log.info("Converted {} into {} shards: {} succeeded, {} failed, {} resumed from checkpoint, {} records/s",
+                input, summary.getShards(), summary.getSucceeded(), failed, resumed,
+                String.format("%.0f", summary.getRecordsPerSecond()));
+            return summary;
+        }
+    }
+
+    /** Splits the input into shard ranges that start at record boundaries. */
+    private List<ShardState> plan(FileChannel channel, long size, boolean jsonArray) throws IOException {
+        int count = Math.max(1, shards > 0 ? shards : Runtime.getRuntime().availableProcessors());
+        long[] starts = new long[count + 1];
+        starts[count] = size;
+
+        if (jsonArray) {
+            // Array elements may span lines, so boundaries are found by scanning the records
+            RecordReader reader = new RecordReader(channel, true, 0, size, windowSize());
+            int next = 1;
+            while (next < count && reader.next()) {
+                while (next < count && reader.recordOffset() >= size * next / count) {
+                    starts[next++] = reader.recordOffset();
+                }
+            }
+            Arrays.fill(starts, next, count, size);
+        } else {
+            // An NDJSON record never spans lines
+            for (int shard = 1; shard < count; shard++) {
+                starts[shard] = Math.max(starts[shard - 1], lineStartAtOrAfter(channel, size * shard / count, size));
+            }
+        }
+
+        List<ShardState> plan = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            plan.add(new ShardState(shard, starts[shard], starts[shard + 1], starts[shard], 0, 0, 0));
+        }
+        return plan;
+    }
+
+    /** The state of one conversion run, shared by its shard threads. */
+    private final class Run {
+
+        private final FileChannel channel;
+        private final boolean jsonArray;
+        private final Path outputDirectory;
+        private final String baseName;
+        private final Path checkpointFile;
+        private final Checkpoint checkpoint;
+        private final ShardState[] states;
+        private final LongAdder converted = new LongAdder();
+
+        Run(FileChannel channel, boolean jsonArray, Path outputDirectory, String baseName, Path checkpointFile,
+            Checkpoint checkpoint) {
+            this.channel = channel;
+            this.jsonArray = jsonArray;
+            this.outputDirectory = outputDirectory;
+            this.baseName = baseName;
+            this.checkpointFile = checkpointFile;
+            this.checkpoint = checkpoint;
+            this.states = checkpoint.shards().toArray(new ShardState[0]);
+        }
+
+        void convert() throws IOException {
+            ExecutorService executor = Executors.newFixedThreadPool(states.length,
+                WorkerThreads.factory("file-conversion", virtualThreads));
+            ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+                WorkerThreads.factory("file-conversion-progress", false));
+            long started = System.nanoTime();
+            long resumed = records();
+            long interval = progressInterval.toMillis();
+            progress.scheduleAtFixedRate(() -> {
+                long count = converted.sum();
+                double seconds = (System.nanoTime() - started) / 1e9;
+                log.info("Converted {} records, {} records/s", resumed + count, String.format("%.0f", count / seconds));
+            }, interval, interval, TimeUnit.MILLISECONDS);
+
+            try {
+                List<Future<?>> futures = new ArrayList<>(states.length);
+                for (ShardState state : states) {
+                    futures.add(executor.submit(() -> {
+                        convertShard(state);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    await(future);
+                }
+            } finally {
+                progress.shutdownNow();
+                executor.shutdownNow();
+            }
+        }
+
+        private void convertShard(ShardState state) throws IOException {
+            Path outputFile = outputDirectory.resolve(String.format("%s-%03d.ndjson", baseName, state.shard()));
+            try (FileChannel output = FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (output.size() < state.outputBytes()) {
+                    throw new ConversionException(outputFile + " is shorter than its checkpoint; delete "
+                        + checkpointFile + " to convert " + checkpoint.input() + " again");
+                }
+                // Output written after the last checkpoint belongs to records converted again now
+                output.truncate(state.outputBytes());
+                output.position(state.outputBytes());
+
+                ShardWriter writer = new ShardWriter(output);
+                RecordReader reader = new RecordReader(channel, jsonArray, state.position(), state.end(), windowSize());
+                long records = state.records();
+                long failed = state.failed();
+                int sinceCheckpoint = 0;
+
+                while (reader.next()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new ConversionException("Conversion of shard " + state.shard() + " was interrupted");
+                    }
+                    ConversionResponse response = convertRecord(reader.record());
+                    if (response.isSuccess()) {
+                        writer.writeLine(response.getOutput());
+                    } else {
+                        List<String> errors = response.getErrors() == null ? List.of("Conversion failed") : response.getErrors();
+                        writer.writeLine(fhirJsonParsers.encodeResourceToCompactString(OperationOutcomes.processingErrors(errors.stream()
+                            .map(message -> "Offset " + reader.recordOffset() + ": " + message)
+                            .toList())));
+                        failed++;
+                    }
+                    records++;
+                    converted.increment();
+
+                    if (++sinceCheckpoint == checkpointInterval) {
+                        state = checkpoint(state, writer, reader.position(), records, failed);
+                        sinceCheckpoint = 0;
+                    }
+                }
+                checkpoint(state, writer, state.end(), records, failed);
+            }
+        }
+
+        private ShardState checkpoint(ShardState state, ShardWriter writer, long position, long records, long failed)
+                throws IOException {
+            // The checkpoint may only claim output that is already on disk
+            long outputBytes = writer.flush();
+            writer.channel.force(false);
+            ShardState next = new ShardState(state.shard(), state.start(), state.end(), position, outputBytes, records, failed);
+            save(next);
+            return next;
+        }
+
+        synchronized void save(ShardState state) throws IOException {
+            if (state != null) {
+                states[state.shard()] = state;
+            }
+            Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            objectMapper.writeValue(temporary.toFile(),
+                new Checkpoint(checkpoint.input(), checkpoint.inputSize(), checkpoint.inputModified(), List.of(states)));
+            try {
+                Files.move(temporary, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        /** Records of the saved shard states; all records once every shard has finished. */
+        synchronized long records() {
+            return Arrays.stream(states).mapToLong(ShardState::records).sum();
+        }
+
+        synchronized long failed() {
+            return Arrays.stream(states).mapToLong(ShardState::failed).sum();
+        }
+    }
+
+    private ConversionResponse convertRecord(ByteBuffer record) {
+        ConversionRequest request;
+        try {
+            request = objectMapper.readValue(new ByteBufferBackedInputStream(record), ConversionRequest.class);
+        } catch (JsonProcessingException e) {
+            return BulkConversionService.failure("Invalid record: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            return BulkConversionService.failure("Invalid record: " + e.getMessage());
+        }
+        return bulkConversionService.convertRecord(request);
+    }
+
+    /**
+     * Reads the records of {@code [start, end)} of a file one at a time, as slices of a mapped
+     * window. In NDJSON a record is a non-blank line. In a JSON array it is an element object,
+     * or for anything else the rest of its line, and the brackets and commas between elements
+     * are skipped. The window is moved on when the next record doesn't fit in it.
+     */
+    private static final class RecordReader {
+
+        private final FileChannel channel;
+        private final boolean jsonArray;
+        private final long end;
+        private final long windowSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private int windowLength;
+        private long position;
+        private long recordOffset;
+        private ByteBuffer record;
+
+        RecordReader(FileChannel channel, boolean jsonArray, long start, long end, long windowSize) {
+            this.channel = channel;
+            this.jsonArray = jsonArray;
+            this.end = end;
+            this.windowSize = windowSize;
+            this.position = start;
+        }
+
+        boolean next() throws IOException {
+            while (position < end) {
+                if (window == null || position >= windowStart + windowLength) {
+                    map(position);
+                }
+                int i = (int) (position - windowStart);
+                while (i < windowLength && isSeparator(window.get(i), jsonArray)) {
+                    i++;
+                }
+                if (i == windowLength) {
+                    position = windowStart + i;
+                    continue;
+                }
+
+                int recordEnd = jsonArray && window.get(i) == '{'
+                    ? objectEnd(window, i, windowLength)
+                    : lineEnd(window, i, windowLength);
+                if (recordEnd < 0) {
+                    if (windowStart + windowLength < end) {
+                        if (i == 0) {
+                            throw new ConversionException("Record at offset " + windowStart
+                                + " is larger than the map window of " + windowSize + " bytes");
+                        }
+                        // Map again from the start of the record so that all of it is in the window
+                        position = windowStart + i;
+                        map(position);
+                        continue;
+                    }
+                    // Cut off at the end of the input; it is passed on and fails to parse
+                    recordEnd = windowLength;
+                }
+
+                recordOffset = windowStart + i;
+                record = window.slice(i, recordEnd - i);
+                position = windowStart + recordEnd;
+                return true;
+            }
+            return false;
+        }
+
+        long recordOffset() {
+            return recordOffset;
+        }
+
+        ByteBuffer record() {
+            return record;
+        }
+
+        /** Offset of the byte after the last record returned. */
+        long position() {
+            return position;
+        }
+
+        private void map(long from) throws IOException {
+            windowStart = from;
+            windowLength = (int) Math.min(windowSize, end - from);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, from, windowLength);
+        }
+
+        private static boolean isSeparator(byte b, boolean jsonArray) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || jsonArray && (b == ',' || b == '[' || b == ']');
+        }
+
+        /** The index after the object starting at {@code from}, or -1 if it doesn't end before {@code limit}. */
+        private static int objectEnd(ByteBuffer buffer, int from, int limit) {
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            for (int i = from; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                } else if (b == '"') {
+                    inString = true;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+            for (int i = from; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** Writes NDJSON lines to a shard's output file through a direct buffer. */
+    private static final class ShardWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+        ShardWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes a JSON document as a single line. Raw line breaks can only be insignificant
+         * whitespace in JSON, and never occur inside a multi-byte UTF-8 sequence.
+         */
+        void writeLine(String json) throws IOException {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            int from = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    put(bytes, from, i - from);
+                    from = i + 1;
+                }
+            }
+            put(bytes, from, bytes.length - from);
+            put(new byte[]{'\n'}, 0, 1);
+        }
+
+        private void put(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.remaining()) {
+                flush();
+                if (length > buffer.capacity()) {
+                    ByteBuffer large = ByteBuffer.wrap(bytes, offset, length);
+                    while (large.hasRemaining()) {
+                        channel.write(large);
+                    }
+                    return;
+                }
+            }
+            buffer.put(bytes, offset, length);
+        }
+
+        /** Writes out the buffer and returns the length of the output file. */
+        long flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            return channel.position();
+        }
+    }
+
+    private Checkpoint readCheckpoint(Path checkpointFile, long size, long modified) throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        Checkpoint checkpoint = objectMapper.readValue(checkpointFile.toFile(), Checkpoint.class);
+        if (checkpoint.inputSize() != size || checkpoint.inputModified() != modified) {
+            log.warn("{} belongs to an earlier version of {}; converting it from the start", checkpointFile, checkpoint.input());
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /** Removes the shard files of an earlier run, which may have had more shards. */
+    private static void deleteOutputs(Path outputDirectory, String baseName) throws IOException {
+        try (DirectoryStream<Path> outputs = Files.newDirectoryStream(outputDirectory, baseName + "-[0-9][0-9][0-9].ndjson")) {
+            for (Path output : outputs) {
+                Files.delete(output);
+            }
+        }
+    }
+
+    private static boolean isJsonArray(FileChannel channel, long size) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(SCAN_CHUNK_SIZE, size));
+        channel.read(head, 0);
+        for (int i = 0; i < head.position(); i++) {
+            byte b = head.get(i);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b == '[';
+            }
+        }
+        return false;
+    }
+
+    /** The offset of the first line that starts at or after {@code offset}. */
+    private static long lineStartAtOrAfter(FileChannel channel, long offset, long size) throws IOException {
+        long from = Math.max(0, offset - 1);
+        ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK_SIZE);
+        while (from < size && offset > 0) {
+            chunk.clear();
+            int read = channel.read(chunk, from);
+            for (int i = 0; i < read; i++) {
+                if (chunk.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            from += read;
+        }
+        return offset > 0 ? size : 0;
+    }
+
+    private long windowSize() {
+        return Math.min(mapWindow.toBytes(), Integer.MAX_VALUE);
+    }
+
+    private static String baseName(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConversionException("Interrupted while converting", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new ConversionException("File conversion failed", e.getCause());
+        }
+    }
+}
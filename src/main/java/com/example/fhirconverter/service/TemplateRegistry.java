@@ -0,0 +1,309 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.exception.TemplateException;
+import com.example.fhirconverter.filters.FusedJsonFilters;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import liqp.Template;
+import liqp.TemplateParser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles every template under {@code fhir.converter.templates-path} once at startup and
+ * keeps them for the lifetime of the application. File-system templates are watched for
+ * changes in the background, or polled when watching is off; an entry is only recompiled
+ * when its file actually changes, and is swapped in only once it compiled.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TemplateRegistry {
+
+    private static final String TEMPLATE_SUFFIX = ".liquid";
+
+    private final TemplateParser templateParser;
+    private final ResourcePatternResolver resourceResolver;
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, CompileError> compileErrors = new ConcurrentHashMap<>();
+
+    @Value("${fhir.converter.templates-path}")
+    private String templatesPath;
+
+    @Value("${fhir.converter.templates.check-interval:10s}")
+    private Duration checkInterval;
+
+    @Value("${fhir.converter.templates.watch:true}")
+    private boolean watch;
+
+    /** Quiet period after a file event before recompiling, so multi-step saves compile once. */
+    @Value("${fhir.converter.templates.watch-debounce:200ms}")
+    private Duration watchDebounce;
+
+    /** Compile {@code | fhir_phone | json} chains to their fused {@code fhir_phone_json} filters. */
+    @Value("${fhir.converter.templates.fuse-json-filters:true}")
+    private boolean fuseJsonFilters;
+
+    private ScheduledExecutorService changeDetector;
+
+    private WatchService watchService;
+
+    /**
+     * The last failed compilation of a template that is still served in its previous version.
+     *
+     * @param name     template name
+     * @param message  the parser's error message
+     * @param failedAt when compilation failed
+     */
+    public record CompileError(String name, String message, Instant failedAt) {
+    }
+
+    @PostConstruct
+    public void compileAll() {
+        long start = System.nanoTime();
+        Set<Path> directories = new LinkedHashSet<>();
+
+        for (Resource resource : findTemplateResources()) {
+            CompiledTemplate compiled = compile(resource);
+            templates.put(compiled.name(), compiled);
+            if (resource.isFile()) {
+                directories.add(directoryOf(resource));
+            }
+        }
+
+        log.info("Compiled {} templates from {} in {} ms", templates.size(), templatesPath,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (!directories.isEmpty() && watch && startWatching(directories)) {
+            return;
+        }
+        if (!directories.isEmpty() && !checkInterval.isZero()) {
+            changeDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "template-change-detector");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = checkInterval.toMillis();
+            changeDetector.scheduleWithFixedDelay(() -> {
+                try {
+                    recompileChanged();
+                } catch (RuntimeException e) {
+                    // Never let a failed scan cancel the periodic check
+                    log.error("Template change detection failed", e);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (changeDetector != null) {
+            changeDetector.shutdownNow();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close template watcher", e);
+            }
+        }
+    }
+
+    /**
+     * The template named by {@code resourceType} in any case, e.g. {@code patient-simple}, or
+     * the template of a resource type, e.g. {@code medication-request} for MedicationRequest.
+     */
+    public CompiledTemplate get(String resourceType) {
+        CompiledTemplate compiled = templates.get(resourceType.toLowerCase(Locale.ROOT));
+        if (compiled == null) {
+            compiled = templates.get(kebabCase(resourceType));
+        }
+        if (compiled == null) {
+            throw new TemplateException("No template found for resource type: " + resourceType);
+        }
+        return compiled;
+    }
+
+    public Set<String> getTemplateNames() {
+        return Collections.unmodifiableSet(templates.keySet());
+    }
+
+    /** All compiled templates by name, each in the version currently served. */
+    public Map<String, CompiledTemplate> getTemplates() {
+        return Collections.unmodifiableMap(templates);
+    }
+
+    /** Templates whose latest change failed to compile, by name. */
+    public Map<String, CompileError> getCompileErrors() {
+        return Collections.unmodifiableMap(compileErrors);
+    }
+
+    /** The kebab-case template name form of a resource type, e.g. {@code medication-request} for MedicationRequest. */
+    static String kebabCase(String resourceType) {
+        StringBuilder name = new StringBuilder(resourceType.length() + 4);
+        for (int i = 0; i < resourceType.length(); i++) {
+            char c = resourceType.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                name.append('-');
+            }
+            name.append(Character.toLowerCase(c));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Rescans the templates path, recompiling templates whose file changed, adding new ones
+     * and dropping deleted ones. A template that fails to compile keeps its previous version.
+     */
+    void recompileChanged() {
+        Set<String> seen = new HashSet<>();
+        for (Resource resource : findTemplateResources()) {
+            String name = templateName(resource);
+            seen.add(name);
+
+            CompiledTemplate current = templates.get(name);
+            if (current != null && current.lastModified() == lastModified(resource)) {
+                continue;
+            }
+            try {
+                // Compiled before it replaces the entry, so requests never see a half-built template
+                templates.put(name, compile(resource));
+                compileErrors.remove(name);
+                log.info("Recompiled template '{}'", name);
+            } catch (TemplateException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                compileErrors.put(name, new CompileError(name, String.valueOf(cause.getMessage()), Instant.now()));
+                log.error("Failed to recompile template '{}', keeping previous version", name, e);
+            }
+        }
+
+        templates.keySet().removeIf(name -> {
+            boolean removed = !seen.contains(name);
+            if (removed) {
+                log.info("Template '{}' was removed", name);
+            }
+            return removed;
+        });
+        compileErrors.keySet().retainAll(seen);
+    }
+
+    /**
+     * Watches the template directories on a background thread, rescanning after each burst of
+     * file events. Returns false if the file system does not support watching.
+     */
+    private boolean startWatching(Set<Path> directories) {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Cannot watch {} for template changes, falling back to polling", directories, e);
+            shutdown();
+            watchService = null;
+            return false;
+        }
+
+        Thread thread = new Thread(this::watchLoop, "template-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for template changes", directories);
+        return true;
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(watchDebounce.toMillis(), TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                try {
+                    recompileChanged();
+                } catch (RuntimeException e) {
+                    // Never let a failed scan stop the watcher
+                    log.error("Template change detection failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shut down
+        }
+    }
+
+    private Resource[] findTemplateResources() {
+        try {
+            return resourceResolver.getResources(templatesPath + "*" + TEMPLATE_SUFFIX);
+        } catch (IOException e) {
+            throw new TemplateException("Failed to list templates in " + templatesPath, e);
+        }
+    }
+
+    private CompiledTemplate compile(Resource resource) {
+        String name = templateName(resource);
+        long lastModified = lastModified(resource);
+        try (InputStream is = resource.getInputStream()) {
+            String source = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            Template template = templateParser.parse(fuseJsonFilters ? FusedJsonFilters.fuse(source, templateParser.filters) : source);
+            return new CompiledTemplate(name, template, TemplateSkeleton.of(template, templateParser), source,
+                resource, lastModified, Instant.now());
+        } catch (IOException | RuntimeException e) {
+            throw new TemplateException("Failed to compile template: " + name, e);
+        }
+    }
+
+    private static Path directoryOf(Resource resource) {
+        try {
+            return resource.getFile().toPath().getParent();
+        } catch (IOException e) {
+            throw new TemplateException("Failed to resolve template directory of " + resource, e);
+        }
+    }
+
+    private static String templateName(Resource resource) {
+        String filename = resource.getFilename();
+        if (filename == null) {
+            throw new TemplateException("Template resource has no file name: " + resource);
+        }
+        return filename.substring(0, filename.length() - TEMPLATE_SUFFIX.length()).toLowerCase(Locale.ROOT);
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
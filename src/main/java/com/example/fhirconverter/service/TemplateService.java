@@ -1,88 +1,161 @@
 package com.example.fhirconverter.service;
 
-import com.example.fhirconverter.exception.TemplateException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import liqp.Template;
+import liqp.TemplateContext;
 import liqp.TemplateParser;
 import liqp.filters.Filter;
+import com.example.fhirconverter.util.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.Writer;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TemplateService {
 
+    private final TemplateRegistry templateRegistry;
     private final TemplateParser templateParser;
-    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+    private final IdGenerator idGenerator;
 
-    @Value("${fhir.converter.templates-path}")
-    private String templatesPath;
+    @Value("${fhir.converter.templates.filtered-cache.maximum-size:500}")
+    private long filteredCacheMaximumSize;
 
-    @Cacheable(value = "templates", key = "#resourceType")
-    public Template loadTemplate(String resourceType) {
-        try {
-            String templatePath = templatesPath + resourceType.toLowerCase() + ".liquid";
-            Resource resource = resourceLoader.getResource(templatePath);
+    @Value("${fhir.converter.templates.filtered-cache.expire-after-access:1h}")
+    private Duration filteredCacheExpireAfterAccess;
 
-            try (InputStream is = resource.getInputStream()) {
-                String templateContent = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-                return templateParser.parse(templateContent);
-            }
-        } catch (IOException e) {
-            throw new TemplateException("Failed to load template for resource type: " + resourceType, e);
-        }
+    private Cache<FilteredTemplateKey, FilteredTemplate> filteredTemplates;
+
+    @PostConstruct
+    void initFilteredTemplateCache() {
+        filteredTemplates = Caffeine.newBuilder()
+            .maximumSize(filteredCacheMaximumSize)
+            .expireAfterAccess(filteredCacheExpireAfterAccess)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, filteredTemplates, "filtered-templates");
+    }
+
+    public Template loadTemplate(String resourceType) {
+        return templateRegistry.get(resourceType).template();
     }
 
     public String renderTemplate(String resourceType, Map<String, Object> data) {
-        Template template = loadTemplate(resourceType);
+        CompiledTemplate compiled = templateRegistry.get(resourceType);
+        return compiled.skeleton().render(withUtilities(compiled, data));
+    }
 
-        // Add utility functions
-        Map<String, Object> context = new HashMap<>(data);
-        context.put("uuid", UUID.randomUUID().toString());
-        context.put("now", Instant.now().toString());
-        return template.render(context);
+    /**
+     * Renders straight into {@code out}, writing the output of each top-level template node as
+     * soon as it is rendered instead of building the whole document as one String first.
+     * Output already written stays written if a later node fails.
+     */
+    public void renderTemplate(String resourceType, Map<String, Object> data, Writer out) throws IOException {
+        CompiledTemplate compiled = templateRegistry.get(resourceType);
+        compiled.skeleton().render(withUtilities(compiled, data), out);
     }
 
     /**
-     * Alternative method for rendering with instance-specific filters
+     * Alternative method for rendering with instance-specific filters.
+     * The template is compiled once per (template version, filter set) and reused until evicted;
+     * filter sets are matched by the identity of their {@link Filter} instances, in order.
      */
     public String renderTemplateWithFilters(String resourceType, Map<String, Object> data, List<Filter> additionalFilters) {
-        try {
-            String templatePath = templatesPath + resourceType.toLowerCase() + ".liquid";
-            Resource resource = resourceLoader.getResource(templatePath);
+        CompiledTemplate compiled = templateRegistry.get(resourceType);
+        FilteredTemplateKey key = new FilteredTemplateKey(compiled, List.copyOf(additionalFilters));
+
+        FilteredTemplate filtered = filteredTemplates.get(key, k -> compileWithFilters(k.compiled(), k.filters()));
+        return render(filtered.template(), filtered.skeleton(), filtered.parser(), data);
+    }
+
+    /**
+     * Renders with a context of its own. {@link Template#render(Map)} keeps the context of the
+     * render in progress in a field of the shared Template, so concurrent renders of one template
+     * could read each other's variables.
+     */
+    private static String render(Template template, TemplateSkeleton skeleton, TemplateParser parser,
+                                 Map<String, Object> data) {
+        return skeleton.render(newContext(template, parser, data));
+    }
 
-            try (InputStream is = resource.getInputStream()) {
-                String templateContent = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    private static TemplateContext newContext(Template template, TemplateParser parser, Map<String, Object> data) {
+        return new TemplateContext(template, parser, parser.evaluate(parser.mapper, data));
+    }
+
+    private TemplateContext withUtilities(CompiledTemplate compiled, Map<String, Object> data) {
+        // Add utility functions, but only those the template reads: the content id strategy
+        // hashes the whole input
+        TemplateContext context = newContext(compiled.template(), templateParser, data);
+        if (compiled.skeleton().mayRead("uuid")) {
+            context.put("uuid", idGenerator.newId(compiled.name(), data));
+        }
+        if (compiled.skeleton().mayRead("now")) {
+            context.put("now", Instant.now().toString());
+        }
+        return context;
+    }
+
+    private static FilteredTemplate compileWithFilters(CompiledTemplate compiled, List<Filter> filters) {
+        // Create parser with additional filters
+        TemplateParser.Builder builder = new TemplateParser.Builder();
+
+        filters.forEach(builder::withFilter);
+
+        TemplateParser parser = builder
+            .withStripSingleLine(true)
+            .withStripSpaceAroundTags(true)
+            .build();
+        Template template = parser.parse(compiled.source());
+        return new FilteredTemplate(template, TemplateSkeleton.of(template, parser), parser);
+    }
 
-                // Create parser with additional filters
-                TemplateParser.Builder builder = new TemplateParser.Builder();
+    private record FilteredTemplate(Template template, TemplateSkeleton skeleton, TemplateParser parser) {
+    }
 
-                additionalFilters.forEach(builder::withFilter);
+    /**
+     * Cache key that compares the compiled template and each filter by identity, so a
+     * recompiled template or a different filter instance never reuses a stale entry.
+     */
+    private record FilteredTemplateKey(CompiledTemplate compiled, List<Filter> filters) {
 
-                Template template = builder
-                    .withStripSingleLine(true)
-                    .withStripSpaceAroundTags(true)
-                    .build()
-                    .parse(templateContent);
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FilteredTemplateKey other) || compiled != other.compiled
+                || filters.size() != other.filters.size()) {
+                return false;
+            }
+            for (int i = 0; i < filters.size(); i++) {
+                if (filters.get(i) != other.filters.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
-                return template.render(data);
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(compiled);
+            for (Filter filter : filters) {
+                hash = 31 * hash + System.identityHashCode(filter);
             }
-        } catch (IOException e) {
-            throw new TemplateException("Failed to render template with filters", e);
+            return hash;
         }
     }
 }
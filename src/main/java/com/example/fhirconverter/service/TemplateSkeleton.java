@@ -0,0 +1,132 @@
+package com.example.fhirconverter.service;
+
+import liqp.RenderTransformer;
+import liqp.Template;
+import liqp.TemplateContext;
+import liqp.TemplateParser;
+import liqp.nodes.AtomNode;
+import liqp.nodes.BlockNode;
+import liqp.nodes.LNode;
+import liqp.org.antlr.v4.runtime.tree.ParseTree;
+import liqp.org.antlr.v4.runtime.tree.TerminalNode;
+import liqp.parser.v4.NodeVisitor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A template prepared for rendering: the node tree is built once instead of on every render,
+ * and its top-level static text is kept as ready-made strings, so a render only evaluates the
+ * output tags and blocks in between.
+ * <p>
+ * Each dynamic node is rendered as a block of its own, which applies the same value
+ * post-processing as the template's root block, so the output is identical to
+ * {@link Template#render}. Nodes are not modified by rendering and are shared by concurrent
+ * renders; all render state lives in the {@link TemplateContext}.
+ */
+public final class TemplateSkeleton {
+
+    /** A {@link String} for static text, a single-node {@link BlockNode} for anything else. */
+    private final Object[] segments;
+    private final int staticLength;
+    /** The words in the template's tags, or {@code null} if it includes other templates. */
+    private final Set<String> words;
+
+    private TemplateSkeleton(Object[] segments, int staticLength, Set<String> words) {
+        this.segments = segments;
+        this.staticLength = staticLength;
+        this.words = words;
+    }
+
+    static TemplateSkeleton of(Template template, TemplateParser parser) {
+        LNode root = (LNode) new NodeVisitor(parser.insertions, parser.filters, parser.liquidStyleInclude)
+            .visit(template.getParseTree());
+        List<LNode> nodes = root instanceof BlockNode block ? block.getChildren() : List.of(root);
+
+        List<Object> segments = new ArrayList<>(nodes.size());
+        StringBuilder text = new StringBuilder();
+        int staticLength = 0;
+        for (LNode node : nodes) {
+            // Text between tags is an atom holding a String; the atom ignores the context
+            if (node instanceof AtomNode && node.render(null) instanceof String constant) {
+                text.append(constant);
+                continue;
+            }
+            if (!text.isEmpty()) {
+                segments.add(text.toString());
+                staticLength += text.length();
+                text.setLength(0);
+            }
+            BlockNode chunk = new BlockNode();
+            chunk.add(node);
+            segments.add(chunk);
+        }
+        if (!text.isEmpty()) {
+            segments.add(text.toString());
+            staticLength += text.length();
+        }
+        return new TemplateSkeleton(segments.toArray(), staticLength, words(template.getParseTree()));
+    }
+
+    /**
+     * Whether rendering may read the variable {@code name}: false if no tag of the template
+     * mentions it, as a name or as a quoted key. Templates that include others may read anything.
+     * A key computed while rendering, such as {@code {{ [key] }}}, is not detected.
+     */
+    public boolean mayRead(String name) {
+        return words == null || words.contains(name);
+    }
+
+    private static Set<String> words(ParseTree tree) {
+        Set<String> words = new HashSet<>();
+        List<ParseTree> pending = new ArrayList<>(List.of(tree));
+        while (!pending.isEmpty()) {
+            ParseTree node = pending.removeLast();
+            if (node instanceof TerminalNode terminal) {
+                String text = terminal.getText();
+                if (text.equals("include") || text.equals("render")) {
+                    return null;
+                }
+                words.add(text.length() > 1 && (text.charAt(0) == '\'' || text.charAt(0) == '"')
+                    ? text.substring(1, text.length() - 1)
+                    : text);
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.add(node.getChild(i));
+            }
+        }
+        return words;
+    }
+
+    public String render(TemplateContext context) {
+        RenderTransformer transformer = context.getParser().getRenderTransformer();
+        StringBuilder out = new StringBuilder(staticLength + (staticLength >> 1));
+        for (Object segment : segments) {
+            if (segment instanceof String text) {
+                out.append(text);
+            } else {
+                out.append(transformer.transformObject(context, ((LNode) segment).render(context)));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes each segment as soon as it is rendered. Output already written stays written if a
+     * later segment fails.
+     */
+    public void render(TemplateContext context, Writer out) throws IOException {
+        RenderTransformer transformer = context.getParser().getRenderTransformer();
+        for (Object segment : segments) {
+            if (segment instanceof String text) {
+                out.write(text);
+            } else {
+                out.write(transformer.transformObject(context, ((LNode) segment).render(context)).toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.fhirconverter.service;
+
+import com.example.fhirconverter.model.ConversionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs sample conversions before the application reports itself ready, so template
+ * rendering, HAPI model scanning and JIT compilation are done before real traffic arrives.
+ * Spring Boot only publishes the readiness {@code ACCEPTING_TRAFFIC} state after all
+ * {@link ApplicationRunner}s have completed. The samples are not recorded in the conversion
+ * and validation metrics, and their validation results are not cached.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TemplateWarmupService implements ApplicationRunner {
+
+    private final ConversionService conversionService;
+    private final ResourcePatternResolver resourceResolver;
+    private final ObjectMapper objectMapper;
+
+    @Value("${fhir.converter.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fhir.converter.warmup.iterations:10}")
+    private int iterations;
+
+    @Value("${fhir.converter.warmup.samples:classpath:examples/*.json}")
+    private String samplesPattern;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || iterations <= 0) {
+            return;
+        }
+
+        List<ConversionRequest> samples = loadSamples();
+        long start = System.nanoTime();
+        int failures = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            for (ConversionRequest sample : samples) {
+                if (!conversionService.warmUp(sample).isSuccess()) {
+                    failures++;
+                }
+            }
+        }
+
+        log.info("Warm-up ran {} sample conversions x {} iterations in {} ms ({} failed)",
+            samples.size(), iterations, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failures);
+    }
+
+    private List<ConversionRequest> loadSamples() {
+        List<ConversionRequest> samples = new ArrayList<>();
+        try {
+            for (Resource resource : resourceResolver.getResources(samplesPattern)) {
+                try (InputStream is = resource.getInputStream()) {
+                    samples.add(objectMapper.readValue(is, ConversionRequest.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable warm-up sample {}", resource, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to list warm-up samples {}", samplesPattern, e);
+        }
+        return samples;
+    }
+}
@@ -1,33 +1,188 @@
 package com.example.fhirconverter.service;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.validation.FhirValidator;
+import ca.uhn.fhir.validation.SingleValidationMessage;
 import ca.uhn.fhir.validation.ValidationResult;
+import com.example.fhirconverter.util.FhirParserPool;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
+import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Validates converted resources with the shared {@link FhirValidator}. The first validation of
+ * each resource type is timed as {@code phase=cold} on the {@code fhir.validation} timer and
+ * later ones as {@code phase=warm}; structure definitions are pre-loaded at startup so request
+ * traffic only sees the warm path.
+ * <p>
+ * With {@code fhir.converter.validation.result-cache.enabled}, results are cached by a SHA-256
+ * of the resource's compact HAPI JSON encoding and of the validator configuration, so a resource
+ * that is sent again unchanged is not validated again.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ValidationService {
     
     private final FhirValidator fhirValidator;
+    private final FhirInstanceValidator fhirInstanceValidator;
+    private final ValidationSupportChain validationSupport;
+    private final FhirContext fhirContext;
+    private final FhirParserPool fhirJsonParsers;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${fhir.converter.validation.strict:false}")
+    private boolean strict;
+    
+    @Value("${fhir.converter.validation.preload:true}")
+    private boolean preload;
+    
+    @Value("${fhir.converter.validation.preload-resource-types:Patient,Observation,Encounter,MedicationRequest,Bundle}")
+    private List<String> preloadResourceTypes;
+    
+    @Value("${fhir.converter.validation.result-cache.enabled:false}")
+    private boolean resultCacheEnabled;
+    
+    @Value("${fhir.converter.validation.result-cache.maximum-size:10000}")
+    private long resultCacheMaximumSize;
+    
+    @Value("${fhir.converter.validation.result-cache.expire-after-write:10m}")
+    private Duration resultCacheExpireAfterWrite;
+    
+    private final Set<String> warmResourceTypes = ConcurrentHashMap.newKeySet();
+    
+    /** Cold and warm timers per resource type, registered once rather than on every validation. */
+    private final Map<String, ValidationTimers> validationTimers = new ConcurrentHashMap<>();
+    
+    private Cache<String, com.example.fhirconverter.model.ValidationResult> resultCache;
+    
+    private volatile String resultCacheConfiguration;
+    
+    @PostConstruct
+    void initialize() {
+        preloadResourceTypes.forEach(this::validationTimers);
+        if (resultCacheEnabled) {
+            resultCache = Caffeine.newBuilder()
+                .maximumSize(resultCacheMaximumSize)
+                .expireAfterWrite(resultCacheExpireAfterWrite)
+                .recordStats()
+                .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, resultCache, "validation-results");
+        }
+        if (preload) {
+            preloadValidationSupport();
+        }
+    }
+    
+    private void preloadValidationSupport() {
+        long start = System.nanoTime();
+        int structureDefinitions = validationSupport.fetchAllStructureDefinitions().size();
+        
+        // Validating an empty instance generates the snapshots and warms the terminology
+        // caches each type needs
+        for (String resourceType : preloadResourceTypes) {
+            try {
+                validate(fhirContext.getResourceDefinition(resourceType).newInstance());
+            } catch (Exception e) {
+                log.warn("Could not pre-load validation for {}", resourceType, e);
+            }
+        }
+        log.info("Pre-loaded {} structure definitions and validation for {} in {} ms",
+            structureDefinitions, preloadResourceTypes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
     
     public com.example.fhirconverter.model.ValidationResult validate(IBaseResource resource) {
-        log.debug("Validating {} resource", resource.fhirType());
+        if (resultCache == null) {
+            return validateUncached(resource, true);
+        }
         
+        String configuration = configurationFingerprint();
+        if (!configuration.equals(resultCacheConfiguration)) {
+            // Entries of an earlier configuration can never be hit again; the key already
+            // keeps them apart, this just frees them
+            if (resultCacheConfiguration != null) {
+                log.info("Validator configuration changed, invalidating {} cached validation results",
+                    resultCache.estimatedSize());
+                resultCache.invalidateAll();
+            }
+            resultCacheConfiguration = configuration;
+        }
+        String key = cacheKey(resource, configuration);
+        com.example.fhirconverter.model.ValidationResult cached = resultCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Not Cache.get(key, loader): the loader would run inside a ConcurrentHashMap bin lock,
+        // pinning virtual threads and blocking unrelated keys for a whole validation
+        com.example.fhirconverter.model.ValidationResult result = validateUncached(resource, true);
+        resultCache.put(key, result);
+        return result;
+    }
+    
+    /**
+     * Validates without the result cache and without timing the validation, for conversions
+     * that are not traffic, such as the warm-up. The resource type is not marked warm either, so
+     * the first real validation of it is still timed as cold.
+     */
+    public com.example.fhirconverter.model.ValidationResult validateUnrecorded(IBaseResource resource) {
+        return validateUncached(resource, false);
+    }
+    
+    private com.example.fhirconverter.model.ValidationResult validateUncached(IBaseResource resource, boolean recorded) {
+        String resourceType = resource.fhirType();
+        log.debug("Validating {} resource", resourceType);
+        
+        boolean cold = !warmResourceTypes.contains(resourceType);
+        long start = System.nanoTime();
         ValidationResult result = fhirValidator.validateWithResult(resource);
+        if (recorded) {
+            ValidationTimers timers = validationTimers(resourceType);
+            (cold ? timers.cold() : timers.warm()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (cold) {
+                warmResourceTypes.add(resourceType);
+            }
+        }
+        
+        List<SingleValidationMessage> results = result.getMessages();
+        if (results.isEmpty()) {
+            return com.example.fhirconverter.model.ValidationResult.builder()
+                .successful(true)
+                .messages(List.of())
+                .errors(List.of())
+                .warnings(List.of())
+                .information(List.of())
+                .build();
+        }
         
         List<String> errors = new ArrayList<>();
         List<String> warnings = new ArrayList<>();
         List<String> information = new ArrayList<>();
-        List<String> messages = new ArrayList<>();
+        List<String> messages = new ArrayList<>(results.size());
         
-        result.getMessages().forEach(message -> {
+        for (SingleValidationMessage message : results) {
             String msg = message.getLocationString() + ": " + message.getMessage();
             messages.add(msg);
             
@@ -43,14 +198,69 @@ public class ValidationService {
                     information.add(msg);
                     break;
             }
-        });
+        }
+        
+        // Strict mode also rejects resources with warnings
+        boolean successful = result.isSuccessful() && (!strict || warnings.isEmpty());
         
+        // Cached results are shared between callers
         return com.example.fhirconverter.model.ValidationResult.builder()
-            .successful(result.isSuccessful())
-            .messages(messages)
-            .errors(errors)
-            .warnings(warnings)
-            .information(information)
+            .successful(successful)
+            .messages(List.copyOf(messages))
+            .errors(List.copyOf(errors))
+            .warnings(List.copyOf(warnings))
+            .information(List.copyOf(information))
             .build();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Everything besides the resource that decides the validation outcome. Read on every call so
+     * validator settings or support modules changed at runtime never hit results of the old ones.
+     */
+    private String configurationFingerprint() {
+        StringBuilder fingerprint = new StringBuilder(256)
+            .append(fhirContext.getVersion().getVersion())
+            .append('|').append(strict)
+            .append('|').append(fhirInstanceValidator.isAnyExtensionsAllowed())
+            .append('|').append(fhirInstanceValidator.isErrorForUnknownProfiles())
+            .append('|').append(fhirInstanceValidator.isNoTerminologyChecks())
+            .append('|').append(fhirInstanceValidator.isNoExtensibleWarnings())
+            .append('|').append(fhirInstanceValidator.getBestPracticeWarningLevel())
+            .append('|').append(fhirInstanceValidator.getExtensionDomains());
+        for (IValidationSupport support : validationSupport.getValidationSupports()) {
+            fingerprint.append('|').append(support.getClass().getName())
+                .append('@').append(Integer.toHexString(System.identityHashCode(support)));
+        }
+        return fingerprint.toString();
+    }
+    
+    private String cacheKey(IBaseResource resource, String configuration) {
+        String canonical = fhirJsonParsers.encodeResourceToCompactString(resource);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(configuration.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private ValidationTimers validationTimers(String resourceType) {
+        ValidationTimers timers = validationTimers.get(resourceType);
+        return timers != null ? timers : validationTimers.computeIfAbsent(resourceType,
+            type -> new ValidationTimers(validationTimer(type, true), validationTimer(type, false)));
+    }
+    
+    private Timer validationTimer(String resourceType, boolean cold) {
+        return Timer.builder("fhir.validation")
+            .description("FHIR resource validation latency; cold is the first validation of a resource type")
+            .tag("phase", cold ? "cold" : "warm")
+            .tag("resource.type", resourceType)
+            .register(meterRegistry);
+    }
+    
+    private record ValidationTimers(Timer cold, Timer warm) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.fhirconverter.terminology;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable source → target code table with open addressing: two parallel arrays and no
+ * entry objects. Lookups hash the query String (its hash code is cached by String) and compare
+ * with {@code equals}, so they allocate nothing. Equal target codes share one String instance.
+ */
+final class CodeTable {
+
+    private final String[] sources;
+    private final String[] targets;
+    private final int mask;
+    private final int size;
+
+    private CodeTable(String[] sources, String[] targets, int size) {
+        this.sources = sources;
+        this.targets = targets;
+        this.mask = sources.length - 1;
+        this.size = size;
+    }
+
+    /** Builds a table at most half full, so probe sequences stay short. */
+    static CodeTable of(Map<String, String> entries) {
+        int capacity = Integer.highestOneBit(Math.max(2, entries.size() * 2 - 1)) << 1;
+        String[] sources = new String[capacity];
+        String[] targets = new String[capacity];
+        Map<String, String> canonicalTargets = new HashMap<>();
+
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            int slot = spread(entry.getKey().hashCode()) & (capacity - 1);
+            while (sources[slot] != null) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            sources[slot] = entry.getKey();
+            targets[slot] = canonicalTargets.computeIfAbsent(entry.getValue(), target -> target);
+        }
+        return new CodeTable(sources, targets, entries.size());
+    }
+
+    /** The target code of {@code source}, or null if it has none. */
+    String get(String source) {
+        for (int slot = spread(source.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            String candidate = sources[slot];
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.equals(source)) {
+                return targets[slot];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Mixes the high bits in, since short codes often differ only in their last characters. */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
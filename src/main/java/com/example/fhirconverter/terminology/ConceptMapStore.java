@@ -0,0 +1,250 @@
+package com.example.fhirconverter.terminology;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.example.fhirconverter.exception.ConversionException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.ConceptMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code mappings for {@code fhir_code}, loaded at startup from the CSV and FHIR ConceptMap files
+ * matched by {@code fhir.converter.concept-maps.locations}. Each named map is held as a
+ * {@link CodeTable}. Changed files are reloaded in the background; the new tables replace the
+ * old ones in one step, and a reload that fails keeps the old ones.
+ * <p>
+ * CSV files have a {@code map,source,target} header; {@code #} starts a comment line. A
+ * ConceptMap contributes the first target of each element of every group, under its
+ * {@code name}, or its id when it has no name.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ConceptMapStore {
+
+    private final ResourcePatternResolver resourceResolver;
+    private final FhirContext fhirContext;
+
+    @Value("${fhir.converter.concept-maps.locations:classpath:concept-maps/*.csv,classpath:concept-maps/*.json}")
+    private List<String> locations;
+
+    @Value("${fhir.converter.concept-maps.reload-interval:1m}")
+    private Duration reloadInterval;
+
+    private volatile Map<String, CodeTable> tables = Map.of();
+
+    /** Last-modified time of each file the current tables were loaded from. */
+    private volatile Map<String, Long> loadedVersions = Map.of();
+
+    private ScheduledExecutorService reloader;
+
+    @PostConstruct
+    public void load() {
+        reload();
+
+        if (!reloadInterval.isZero()) {
+            reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "concept-map-reloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = reloadInterval.toMillis();
+            reloader.scheduleWithFixedDelay(() -> {
+                try {
+                    reloadIfChanged();
+                } catch (RuntimeException e) {
+                    // Never let a failed reload cancel the periodic check
+                    log.error("Failed to reload concept maps, keeping the loaded ones", e);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /** The target of {@code source} in the named map, or null if the map doesn't map it. */
+    public String translate(String map, String source) {
+        CodeTable table = tables.get(map);
+        return table != null ? table.get(source) : null;
+    }
+
+    public Set<String> getMapNames() {
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    /** Number of mapped codes in the named map, 0 if there is no such map. */
+    public int size(String map) {
+        CodeTable table = tables.get(map);
+        return table != null ? table.size() : 0;
+    }
+
+    /** Reloads all files if any of them changed, or files were added or removed. */
+    public void reloadIfChanged() {
+        if (!versions(findResources()).equals(loadedVersions)) {
+            reload();
+        }
+    }
+
+    private void reload() {
+        long start = System.nanoTime();
+        List<Resource> resources = findResources();
+        Map<String, Long> versions = versions(resources);
+
+        Map<String, Map<String, String>> entries = new LinkedHashMap<>();
+        for (Resource resource : resources) {
+            String filename = String.valueOf(resource.getFilename()).toLowerCase(Locale.ROOT);
+            if (filename.endsWith(".csv")) {
+                readCsv(resource, entries);
+            } else {
+                readConceptMap(resource, entries);
+            }
+        }
+
+        Map<String, CodeTable> loaded = new HashMap<>();
+        entries.forEach((map, codes) -> loaded.put(map, CodeTable.of(codes)));
+        tables = Map.copyOf(loaded);
+        loadedVersions = versions;
+
+        log.info("Loaded {} concept maps with {} codes from {} files in {} ms", loaded.size(),
+            loaded.values().stream().mapToInt(CodeTable::size).sum(), resources.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void readCsv(Resource resource, Map<String, Map<String, String>> entries) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            boolean header = true;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                List<String> fields = csvFields(line);
+                if (header) {
+                    if (!fields.equals(List.of("map", "source", "target"))) {
+                        throw new ConversionException("Expected a map,source,target header in " + resource.getDescription());
+                    }
+                    header = false;
+                } else if (fields.size() != 3) {
+                    throw new ConversionException("Expected 3 fields on line " + lineNumber + " of " + resource.getDescription());
+                } else {
+                    put(entries, fields.get(0), fields.get(1), fields.get(2), resource);
+                }
+            }
+        } catch (IOException e) {
+            throw new ConversionException("Failed to read concept map " + resource.getDescription(), e);
+        }
+    }
+
+    private void readConceptMap(Resource resource, Map<String, Map<String, String>> entries) {
+        ConceptMap conceptMap;
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            conceptMap = fhirContext.newJsonParser().parseResource(ConceptMap.class, reader);
+        } catch (IOException | RuntimeException e) {
+            throw new ConversionException("Failed to read concept map " + resource.getDescription(), e);
+        }
+
+        String map = conceptMap.hasName() ? conceptMap.getName() : conceptMap.getIdElement().getIdPart();
+        for (ConceptMap.ConceptMapGroupComponent group : conceptMap.getGroup()) {
+            for (ConceptMap.SourceElementComponent element : group.getElement()) {
+                element.getTarget().stream()
+                    .filter(ConceptMap.TargetElementComponent::hasCode)
+                    .findFirst()
+                    .ifPresent(target -> put(entries, map, element.getCode(), target.getCode(), resource));
+            }
+        }
+    }
+
+    private static void put(Map<String, Map<String, String>> entries, String map, String source, String target,
+                            Resource resource) {
+        String previous = entries.computeIfAbsent(map, name -> new HashMap<>()).putIfAbsent(source, target);
+        if (previous != null && !previous.equals(target)) {
+            log.warn("Concept map '{}' maps '{}' to both '{}' and '{}' ({}); keeping '{}'",
+                map, source, previous, target, resource.getDescription(), previous);
+        }
+    }
+
+    /** Comma-separated fields, trimmed; a field in double quotes may contain commas and "" for a quote. */
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private List<Resource> findResources() {
+        List<Resource> resources = new ArrayList<>();
+        for (String location : locations) {
+            try {
+                resources.addAll(List.of(resourceResolver.getResources(location.trim())));
+            } catch (IOException e) {
+                throw new ConversionException("Failed to list concept maps in " + location, e);
+            }
+        }
+        return resources;
+    }
+
+    private static Map<String, Long> versions(List<Resource> resources) {
+        Map<String, Long> versions = new HashMap<>();
+        for (Resource resource : resources) {
+            long lastModified;
+            try {
+                lastModified = resource.lastModified();
+            } catch (IOException e) {
+                lastModified = 0L;
+            }
+            versions.put(resource.getDescription(), lastModified);
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.fhirconverter.terminology;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * A UCUM unit and how values convert to the canonical unit of its dimension:
+ * {@code (value + offset) * numerator / denominator}.
+ */
+public record UcumUnit(String code, String canonicalCode, BigDecimal offset, BigDecimal numerator,
+                       BigDecimal denominator) {
+
+    public boolean isCanonical() {
+        return code.equals(canonicalCode);
+    }
+
+    /** {@code value} converted to {@link #canonicalCode()}, without trailing zeros. */
+    public BigDecimal toCanonical(BigDecimal value) {
+        if (isCanonical()) {
+            return value;
+        }
+        BigDecimal canonical = value.add(offset)
+            .multiply(numerator, MathContext.DECIMAL64)
+            .divide(denominator, MathContext.DECIMAL64)
+            .stripTrailingZeros();
+        // Keep large whole numbers in plain notation, 70000 rather than 7E+4
+        return canonical.scale() < 0 ? canonical.setScale(0) : canonical;
+    }
+}
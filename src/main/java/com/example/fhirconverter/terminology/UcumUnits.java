@@ -0,0 +1,140 @@
+package com.example.fhirconverter.terminology;
+
+import com.example.fhirconverter.exception.ConversionException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Normalizes unit strings to UCUM codes from the table at {@code fhir.converter.units.table}.
+ * A unit is found by its code or one of its aliases as written, then ignoring case and
+ * surrounding whitespace, unless two units differ only in case ({@code m} and {@code M}).
+ * <p>
+ * {@link #quantityUnit} returns the unit part of a Quantity as one shared, immutable map per
+ * unit string, built at startup for every code and alias, so converting a batch of results
+ * in the same units doesn't allocate a map per value.
+ */
+@Component
+@Slf4j
+public class UcumUnits {
+
+    public static final String SYSTEM = "http://unitsofmeasure.org";
+
+    /** Unit strings not in the table that keep their own fragment; beyond this some are rebuilt. */
+    private static final int MAX_OTHER_FRAGMENTS = 10_000;
+
+    @Value("${fhir.converter.units.table:classpath:ucum/units.csv}")
+    private Resource table;
+
+    private Map<String, UcumUnit> byName = Map.of();
+    private Map<String, UcumUnit> byLowerCase = Map.of();
+    private Map<String, Map<String, Object>> fragments = Map.of();
+
+    private final Cache<String, Map<String, Object>> otherFragments = Caffeine.newBuilder()
+        .maximumSize(MAX_OTHER_FRAGMENTS)
+        .build();
+    private final Function<String, Map<String, Object>> fragmentFactory = this::fragment;
+
+    @PostConstruct
+    public void load() {
+        Map<String, UcumUnit> names = new HashMap<>();
+        Map<String, UcumUnit> lowerCase = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(table.getInputStream(), StandardCharsets.UTF_8))) {
+            boolean header = true;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length != 5) {
+                    throw new ConversionException("Expected code,canonical,factor,offset,aliases in " + table.getDescription() + ": " + line);
+                }
+                String[] factor = fields[2].split("/", 2);
+                UcumUnit unit = new UcumUnit(fields[0], fields[1], new BigDecimal(fields[3]), new BigDecimal(factor[0]),
+                    factor.length > 1 ? new BigDecimal(factor[1]) : BigDecimal.ONE);
+
+                add(unit.code(), unit, names, lowerCase, ambiguous);
+                for (String alias : fields[4].split("\\|")) {
+                    if (!alias.isEmpty()) {
+                        add(alias, unit, names, lowerCase, ambiguous);
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new ConversionException("Failed to read UCUM units from " + table.getDescription(), e);
+        }
+        ambiguous.forEach(lowerCase::remove);
+        byName = Map.copyOf(names);
+        byLowerCase = Map.copyOf(lowerCase);
+
+        Map<String, Map<String, Object>> built = new HashMap<>();
+        names.keySet().forEach(name -> built.put(name, fragment(name)));
+        fragments = Map.copyOf(built);
+        log.info("Loaded {} UCUM unit names from {}", names.size(), table.getDescription());
+    }
+
+    private static void add(String name, UcumUnit unit, Map<String, UcumUnit> names, Map<String, UcumUnit> lowerCase,
+                            Set<String> ambiguous) {
+        if (names.putIfAbsent(name, unit) != null) {
+            throw new ConversionException("UCUM unit name '" + name + "' is listed twice");
+        }
+        UcumUnit previous = lowerCase.putIfAbsent(name.toLowerCase(Locale.ROOT), unit);
+        if (previous != null && previous != unit) {
+            ambiguous.add(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /** The unit named by {@code unit}, or null if it isn't in the table. */
+    public UcumUnit find(String unit) {
+        if (unit == null) {
+            return null;
+        }
+        UcumUnit found = byName.get(unit);
+        return found != null ? found : byLowerCase.get(unit.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /** The UCUM code of {@code unit}, or {@code unit} unchanged if it isn't in the table. */
+    public String code(String unit) {
+        UcumUnit found = find(unit);
+        return found != null ? found.code() : unit;
+    }
+
+    /** {@code unit}, {@code system} and {@code code} of a Quantity in {@code unit}; shared, don't modify. */
+    public Map<String, Object> quantityUnit(String unit) {
+        Map<String, Object> fragment = fragments.get(unit);
+        return fragment != null ? fragment : otherFragments.get(unit, fragmentFactory);
+    }
+
+    private Map<String, Object> fragment(String unit) {
+        Map<String, Object> fragment = new LinkedHashMap<>();
+        fragment.put("unit", unit);
+        fragment.put("system", SYSTEM);
+        fragment.put("code", code(unit));
+        return Collections.unmodifiableMap(fragment);
+    }
+}
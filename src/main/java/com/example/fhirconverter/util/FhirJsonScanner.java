@@ -0,0 +1,94 @@
+package com.example.fhirconverter.util;
+
+import com.example.fhirconverter.exception.ConversionException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Lightweight structural check of rendered FHIR JSON. Streams through the document once with
+ * Jackson's token parser to confirm it is well-formed and extracts the top-level
+ * {@code resourceType} and {@code id} without building a HAPI object graph.
+ */
+public final class FhirJsonScanner {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int MAX_ID_LENGTH = 64;
+
+    private FhirJsonScanner() {
+    }
+
+    public record ResourceHeader(String resourceType, String id) {
+    }
+
+    public static ResourceHeader scan(String json, Set<String> knownResourceTypes) {
+        String resourceType = null;
+        String id = null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ConversionException("Rendered output is not a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("resourceType".equals(field)) {
+                    resourceType = requireString(parser, value, field);
+                } else if ("id".equals(field)) {
+                    id = requireString(parser, value, field);
+                } else if (value.isStructStart()) {
+                    // Still tokenizes the nested content, so malformed JSON is detected
+                    parser.skipChildren();
+                }
+            }
+
+            if (parser.nextToken() != null) {
+                throw new ConversionException("Unexpected content after the rendered resource");
+            }
+        } catch (IOException e) {
+            throw new ConversionException("Rendered output is not valid JSON: " + e.getMessage(), e);
+        }
+
+        if (resourceType == null) {
+            throw new ConversionException("Rendered output has no resourceType");
+        }
+        if (!knownResourceTypes.contains(resourceType)) {
+            throw new ConversionException("Unknown resource type '" + resourceType + "'");
+        }
+        if (id != null && !isValidId(id)) {
+            throw new ConversionException("Invalid resource id '" + id + "'");
+        }
+        return new ResourceHeader(resourceType, id);
+    }
+
+    private static String requireString(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw new ConversionException("Top-level '" + field + "' must be a string");
+        }
+        return parser.getText();
+    }
+
+    /**
+     * FHIR ids are 1-64 characters from {@code [A-Za-z0-9\-\.]}.
+     */
+    private static boolean isValidId(String id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            boolean valid = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.';
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
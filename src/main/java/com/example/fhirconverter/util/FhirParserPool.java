@@ -0,0 +1,84 @@
+package com.example.fhirconverter.util;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * JSON parsers with the application's encode options, for use from any thread. HAPI parsers are
+ * not thread-safe, so each call borrows an idle parser, or creates one when all are in use, and
+ * returns it afterwards. At most {@code size} idle parsers are kept; they are all created up
+ * front so that requests never pay for configuring one.
+ */
+public final class FhirParserPool {
+
+    private final FhirContext fhirContext;
+    private final Consumer<IParser> options;
+    private final ArrayBlockingQueue<IParser> idle;
+
+    public FhirParserPool(FhirContext fhirContext, int size, Consumer<IParser> options) {
+        this.fhirContext = fhirContext;
+        this.options = options;
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            idle.add(newParser());
+        }
+    }
+
+    public IBaseResource parseResource(String json) {
+        IParser parser = borrow();
+        try {
+            return parser.parseResource(json);
+        } finally {
+            idle.offer(parser);
+        }
+    }
+
+    public String encodeResourceToString(IBaseResource resource) {
+        IParser parser = borrow();
+        try {
+            return parser.encodeResourceToString(resource);
+        } finally {
+            idle.offer(parser);
+        }
+    }
+
+    public void encodeResourceToWriter(IBaseResource resource, Writer writer) throws IOException {
+        IParser parser = borrow();
+        try {
+            parser.encodeResourceToWriter(resource, writer);
+        } finally {
+            idle.offer(parser);
+        }
+    }
+
+    /**
+     * Encodes with the pool's options but never pretty printed, for NDJSON lines and other
+     * output that must be one line.
+     */
+    public String encodeResourceToCompactString(IBaseResource resource) {
+        IParser parser = borrow();
+        try {
+            return parser.setPrettyPrint(false).encodeResourceToString(resource);
+        } finally {
+            options.accept(parser);
+            idle.offer(parser);
+        }
+    }
+
+    private IParser borrow() {
+        IParser parser = idle.poll();
+        return parser != null ? parser : newParser();
+    }
+
+    private IParser newParser() {
+        IParser parser = fhirContext.newJsonParser();
+        options.accept(parser);
+        return parser;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.fhirconverter.util;
+
+import java.util.Map;
+
+/**
+ * Generates the id templates read as {@code uuid}, which mappers and Bundle assembly also use for
+ * resources without an id of their own. {@link IdGenerators} has the strategies
+ * {@code fhir.converter.ids.strategy} selects from.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * A new id for the resource converted with the named template from {@code input}.
+     * Implementations must not modify {@code input}.
+     */
+    String newId(String template, Map<String, Object> input);
+}
@@ -0,0 +1,101 @@
+package com.example.fhirconverter.util;
+
+import com.example.fhirconverter.exception.ConversionException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link IdGenerator} strategies:
+ * <ul>
+ *   <li>{@code random}: {@link UUID#randomUUID()}, random UUIDs from the shared SecureRandom</li>
+ *   <li>{@code fast-random}: random (version 4) UUIDs from {@link ThreadLocalRandom}; as unique,
+ *       but predictable, so not for ids that must not be guessed</li>
+ *   <li>{@code time-ordered}: version 7 UUIDs, which start with the millisecond they were made
+ *       in, so they sort, and index, roughly by creation time</li>
+ *   <li>{@code content}: name-based (version 5) UUIDs of the template name and the input, so
+ *       converting the same input again gives the same ids. Map entries are hashed in key
+ *       order; any change to the input gives a different id.</li>
+ * </ul>
+ */
+public final class IdGenerators {
+
+    /** Namespace of the {@code content} ids. */
+    private static final UUID CONTENT_NAMESPACE = UUID.fromString("3f0b8c52-6d1e-4a7b-9c55-2e8f7d41a906");
+
+    private IdGenerators() {
+    }
+
+    /** The generator of a {@code fhir.converter.ids.strategy} value. */
+    public static IdGenerator of(String strategy, ObjectMapper objectMapper) {
+        return switch (strategy.trim().toLowerCase(Locale.ROOT)) {
+            case "random" -> random();
+            case "fast-random" -> fastRandom();
+            case "time-ordered" -> timeOrdered();
+            case "content" -> content(objectMapper);
+            default -> throw new IllegalArgumentException("Unknown id strategy '" + strategy
+                + "', expected random, fast-random, time-ordered or content");
+        };
+    }
+
+    public static IdGenerator random() {
+        return (template, input) -> UUID.randomUUID().toString();
+    }
+
+    public static IdGenerator fastRandom() {
+        return (template, input) -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long msb = random.nextLong() & ~0xf000L | 0x4000L;
+            long lsb = random.nextLong() & ~(0xcL << 60) | 0x8L << 60;
+            return new UUID(msb, lsb).toString();
+        };
+    }
+
+    public static IdGenerator timeOrdered() {
+        return (template, input) -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // 48-bit Unix milliseconds, version 7, then 74 random bits around the variant
+            long msb = System.currentTimeMillis() << 16 | 0x7000L | random.nextLong() & 0xfffL;
+            long lsb = random.nextLong() & ~(0xcL << 60) | 0x8L << 60;
+            return new UUID(msb, lsb).toString();
+        };
+    }
+
+    public static IdGenerator content(ObjectMapper objectMapper) {
+        ObjectMapper canonical = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        return (template, input) -> {
+            MessageDigest digest = sha1();
+            digest.update(ByteBuffer.allocate(16)
+                .putLong(CONTENT_NAMESPACE.getMostSignificantBits())
+                .putLong(CONTENT_NAMESPACE.getLeastSignificantBits())
+                .array());
+            digest.update(template.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try {
+                digest.update(canonical.writeValueAsBytes(input));
+            } catch (JsonProcessingException e) {
+                throw new ConversionException("Failed to derive an id from the input", e);
+            }
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            long msb = hash.getLong() & ~0xf000L | 0x5000L;
+            long lsb = hash.getLong() & ~(0xcL << 60) | 0x8L << 60;
+            return new UUID(msb, lsb).toString();
+        };
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.fhirconverter.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/** A read-only {@code List} over the elements of a parsed JSON array; see {@link JsonObject}. */
+public final class JsonArray extends AbstractList<Object> implements RandomAccess {
+
+    private final Object[] elements;
+
+    JsonArray(Object[] elements) {
+        this.elements = elements;
+    }
+
+    @Override
+    public Object get(int index) {
+        return elements[index];
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.fhirconverter.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.util.ObjectBuffer;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only {@code Map} over a parsed JSON object, held as one array of alternating names and
+ * values instead of a hash map with an entry object per field. Objects with more than
+ * {@value #INDEX_THRESHOLD} fields also get an open-addressing index of field positions, so
+ * lookups stay constant-time on wide inputs. Values have the types Jackson gives untyped values
+ * (String, Integer/Long/BigInteger/Double, Boolean, null), with nested objects and arrays as
+ * {@code JsonObject}s and {@link JsonArray}s.
+ */
+public final class JsonObject extends AbstractMap<String, Object> {
+
+    private static final int INDEX_THRESHOLD = 8;
+
+    /** {@code name0, value0, name1, value1, ...} in document order. */
+    private final Object[] fields;
+
+    /** Field number + 1 at each slot, 0 for an empty slot; null for small objects. */
+    private final int[] index;
+
+    JsonObject(Object[] fields) {
+        this.fields = fields;
+        this.index = fields.length / 2 > INDEX_THRESHOLD ? index(fields) : null;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int field = find(key);
+        return field >= 0 ? fields[field + 1] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return fields.length / 2;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < fields.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>((String) fields[next], fields[next + 1]);
+                        next += 2;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return JsonObject.this.size();
+            }
+        };
+    }
+
+    /** The position of the key's name in {@link #fields}, or -1. */
+    private int find(Object key) {
+        if (!(key instanceof String name)) {
+            return -1;
+        }
+        if (index == null) {
+            for (int i = fields.length - 2; i >= 0; i -= 2) {
+                if (name.equals(fields[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = spread(name.hashCode()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = (index[slot] - 1) * 2;
+            if (name.equals(fields[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** An index at most half full. A repeated name resolves to its last value, as it would in a map. */
+    private static int[] index(Object[] fields) {
+        int count = fields.length / 2;
+        int[] index = new int[Integer.highestOneBit(count * 2 - 1) << 1];
+        int mask = index.length - 1;
+        for (int field = 0; field < count; field++) {
+            String name = (String) fields[field * 2];
+            int slot = spread(name.hashCode()) & mask;
+            while (index[slot] != 0 && !name.equals(fields[(index[slot] - 1) * 2])) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = field + 1;
+        }
+        return index;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Reads a JSON object straight from the token stream into a {@code JsonObject}, without an
+     * intermediate tree or map.
+     */
+    public static final class Deserializer extends JsonDeserializer<Map<String, Object>> {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                return (Map<String, Object>) context.handleUnexpectedToken(Map.class, parser);
+            }
+            return readObject(parser, context);
+        }
+
+        private static JsonObject readObject(JsonParser parser, DeserializationContext context) throws IOException {
+            ObjectBuffer buffer = context.leaseObjectBuffer();
+            Object[] chunk = buffer.resetAndStart();
+            int used = 0;
+            for (String name = parser.nextFieldName(); name != null; name = parser.nextFieldName()) {
+                parser.nextToken();
+                Object value = readValue(parser, context);
+                if (used >= chunk.length - 1) {
+                    chunk = buffer.appendCompletedChunk(chunk);
+                    used = 0;
+                }
+                chunk[used++] = name;
+                chunk[used++] = value;
+            }
+            Object[] fields = buffer.completeAndClearBuffer(chunk, used);
+            context.returnObjectBuffer(buffer);
+            return new JsonObject(fields);
+        }
+
+        private static JsonArray readArray(JsonParser parser, DeserializationContext context) throws IOException {
+            ObjectBuffer buffer = context.leaseObjectBuffer();
+            Object[] chunk = buffer.resetAndStart();
+            int used = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Object value = readValue(parser, context);
+                if (used == chunk.length) {
+                    chunk = buffer.appendCompletedChunk(chunk);
+                    used = 0;
+                }
+                chunk[used++] = value;
+            }
+            Object[] elements = buffer.completeAndClearBuffer(chunk, used);
+            context.returnObjectBuffer(buffer);
+            return new JsonArray(elements);
+        }
+
+        private static Object readValue(JsonParser parser, DeserializationContext context) throws IOException {
+            return switch (parser.currentToken()) {
+                case START_OBJECT -> readObject(parser, context);
+                case START_ARRAY -> readArray(parser, context);
+                case VALUE_STRING -> parser.getText();
+                case VALUE_NUMBER_INT -> parser.getNumberValue();
+                case VALUE_NUMBER_FLOAT -> context.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    ? parser.getDecimalValue()
+                    : parser.getNumberValue();
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_EMBEDDED_OBJECT -> parser.getEmbeddedObject();
+                default -> null;
+            };
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.fhirconverter.util;
+
+import org.hl7.fhir.r4.model.OperationOutcome;
+
+import java.util.List;
+
+/**
+ * Builds the {@link OperationOutcome}s returned in place of a resource when conversion fails on
+ * the FHIR-native endpoints.
+ */
+public final class OperationOutcomes {
+
+    private OperationOutcomes() {
+    }
+
+    /** One error-level processing issue per message, or a generic one if there are none. */
+    public static OperationOutcome processingErrors(List<String> messages) {
+        OperationOutcome outcome = new OperationOutcome();
+        List<String> diagnostics = messages == null || messages.isEmpty() ? List.of("Conversion failed") : messages;
+        for (String message : diagnostics) {
+            outcome.addIssue()
+                .setSeverity(OperationOutcome.IssueSeverity.ERROR)
+                .setCode(OperationOutcome.IssueType.PROCESSING)
+                .setDiagnostics(message);
+        }
+        return outcome;
+    }
+}
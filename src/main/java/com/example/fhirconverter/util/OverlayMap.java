@@ -0,0 +1,127 @@
+package com.example.fhirconverter.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map that reads through to a base map it never modifies. Entries put into it, such as the
+ * variables a template adds, are kept in a small map of their own that shadows the base, and
+ * removed base entries are hidden. Adding a few entries to a large input therefore doesn't copy
+ * the input.
+ */
+public final class OverlayMap extends AbstractMap<String, Object> {
+
+    /** Marks a base entry as removed. */
+    private static final Object REMOVED = new Object();
+
+    private final Map<String, Object> base;
+    private final Map<String, Object> overlay = new HashMap<>();
+
+    public OverlayMap(Map<String, Object> base) {
+        this.base = base;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = overlay.get(key);
+        if (value != null || overlay.containsKey(key)) {
+            return value == REMOVED ? null : value;
+        }
+        return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (overlay.containsKey(key)) {
+            return overlay.get(key) != REMOVED;
+        }
+        return base.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object previous = get(key);
+        overlay.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Object previous = get(key);
+        if (key instanceof String name && base.containsKey(name)) {
+            overlay.put(name, REMOVED);
+        } else {
+            overlay.remove(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        int size = base.size();
+        for (Entry<String, Object> entry : overlay.entrySet()) {
+            boolean inBase = base.containsKey(entry.getKey());
+            if (entry.getValue() == REMOVED) {
+                size -= inBase ? 1 : 0;
+            } else {
+                size += inBase ? 0 : 1;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return OverlayMap.this.size();
+            }
+        };
+    }
+
+    /** The overlay's entries, then the base entries it doesn't shadow. */
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private final Iterator<Entry<String, Object>> overlayEntries = overlay.entrySet().iterator();
+        private final Iterator<Entry<String, Object>> baseEntries = base.entrySet().iterator();
+        private Entry<String, Object> next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && overlayEntries.hasNext()) {
+                Entry<String, Object> entry = overlayEntries.next();
+                if (entry.getValue() != REMOVED) {
+                    next = new SimpleImmutableEntry<>(entry);
+                }
+            }
+            while (next == null && baseEntries.hasNext()) {
+                Entry<String, Object> entry = baseEntries.next();
+                if (!overlay.containsKey(entry.getKey())) {
+                    next = new SimpleImmutableEntry<>(entry);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
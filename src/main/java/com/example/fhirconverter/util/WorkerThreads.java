@@ -0,0 +1,30 @@
+package com.example.fhirconverter.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the internal worker pools, so every pool follows
+ * {@code spring.threads.virtual.enabled} the same way the request threads do.
+ */
+public final class WorkerThreads {
+
+    private WorkerThreads() {
+    }
+
+    /**
+     * Threads named {@code <prefix>-1}, {@code <prefix>-2}, ...; virtual threads, or platform
+     * daemon threads so a pool never keeps the JVM alive.
+     */
+    public static ThreadFactory factory(String prefix, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(prefix + "-", 1).factory();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
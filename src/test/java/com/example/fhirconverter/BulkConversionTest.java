@@ -0,0 +1,77 @@
+package com.example.fhirconverter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BulkConversionTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testBulkConversionStreamsOneLinePerRecord() throws Exception {
+        String ndjson = """
+            {"resourceType": "Patient", "inputData": {"id": "bulk-1", "family_name": "Doe", "given_names": ["John"], "gender": "M"}}
+            {"resourceType": "Patient", "inputData": {"id": "bulk-2", "family_name": "Roe", "given_names": ["Jane"], "gender": "F"}}
+            """;
+
+        String[] lines = performBulk(ndjson);
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"id\":\"bulk-1\""));
+        assertTrue(lines[1].contains("\"id\":\"bulk-2\""));
+    }
+
+    @Test
+    void testBulkConversionReportsFailuresInline() throws Exception {
+        String ndjson = """
+            {"resourceType": "Patient", "inputData": {"id": "bulk-1", "family_name": "Doe", "given_names": ["John"]}}
+            not json at all
+            {"resourceType": "UnknownType", "inputData": {}}
+
+            {"resourceType": "Patient", "inputData": {"id": "bulk-4", "family_name": "Roe", "given_names": ["Jane"]}}
+            """;
+
+        String[] lines = performBulk(ndjson);
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].contains("\"resourceType\":\"Patient\""));
+        assertTrue(lines[1].contains("\"resourceType\":\"OperationOutcome\""));
+        assertTrue(lines[1].contains("Line 2: Invalid NDJSON record"));
+        assertTrue(lines[2].contains("\"resourceType\":\"OperationOutcome\""));
+        assertTrue(lines[2].contains("Line 3: "));
+        assertTrue(lines[3].contains("\"id\":\"bulk-4\""));
+    }
+
+    private String[] performBulk(String ndjson) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/convert/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .content(ndjson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Streams have no timeout unless fhir.converter.bulk.request-timeout sets one
+        assertEquals(-1, result.getRequest().getAsyncContext().getTimeout());
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        return body.split("\\n");
+    }
+}
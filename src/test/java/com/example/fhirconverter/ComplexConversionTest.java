@@ -3,13 +3,16 @@ package com.example.fhirconverter;
 import com.example.fhirconverter.model.ConversionRequest;
 import com.example.fhirconverter.model.ConversionResponse;
 import com.example.fhirconverter.service.ConversionService;
+import com.example.fhirconverter.util.FhirParserPool;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hl7.fhir.r4.model.Bundle;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,6 +26,9 @@ class ComplexConversionTest {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private FhirParserPool fhirJsonParsers;
+    
     @Test
     void testComplexPatientConversion() throws IOException {
         // Load complex patient example
@@ -217,4 +223,96 @@ class ComplexConversionTest {
         assertTrue(output.contains("\"state\": \"MA\"") || output.contains("\"state\":\"MA\""));
         assertTrue(output.contains("\"postalCode\": \"02101\"") || output.contains("\"postalCode\":\"02101\""));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testFastPathReturnsRenderedOutputWithoutNormalizing() throws IOException {
+        Map<String, Object> exampleData = objectMapper.readValue(
+            new ClassPathResource("examples/patient-with-filters.json").getInputStream(),
+            Map.class
+        );
+        
+        ConversionRequest request = new ConversionRequest();
+        request.setResourceType((String) exampleData.get("resourceType"));
+        request.setInputData((Map<String, Object>) exampleData.get("inputData"));
+        request.setValidate(false);
+        request.setNormalize(false);
+        
+        ConversionResponse response = conversionService.convert(request);
+        
+        assertTrue(response.isSuccess());
+        assertEquals("Patient", response.getResourceType());
+        assertNotNull(response.getOutput());
+        
+        // Same content as the normalized path, but the template whitespace is kept
+        String output = response.getOutput();
+        assertTrue(output.contains("\n"));
+        assertTrue(output.contains("\"value\":\"123-45-6789\""));
+        assertTrue(output.contains("\"birthDate\": \"1990-01-15\""));
+    }
+    
+    @Test
+    void testFastPathRejectsInvalidResourceId() {
+        ConversionRequest request = new ConversionRequest();
+        request.setResourceType("Patient");
+        request.setInputData(Map.of("id", "not a valid id!", "family_name", "Doe"));
+        request.setValidate(false);
+        request.setNormalize(false);
+        
+        ConversionResponse response = conversionService.convert(request);
+        
+        assertFalse(response.isSuccess());
+        assertTrue(response.getErrors().get(0).startsWith("Invalid resource id"));
+    }
+    
+    @Test
+    void testParallelBundleKeepsEntryOrderAndFullUrls() throws IOException {
+        Map<String, Object> exampleData = objectMapper.readValue(
+            new ClassPathResource("examples/bundle-transaction.json").getInputStream(),
+            Map.class
+        );
+        
+        ConversionRequest request = new ConversionRequest();
+        request.setResourceType("Bundle");
+        request.setInputData((Map<String, Object>) exampleData.get("inputData"));
+        
+        request.setParallel(false);
+        Bundle viaTemplate = (Bundle) fhirJsonParsers.parseResource(conversionService.convert(request).getOutput());
+        
+        request.setParallel(true);
+        ConversionResponse response = conversionService.convert(request);
+        assertTrue(response.isSuccess(), () -> String.valueOf(response.getErrors()));
+        assertEquals("Bundle", response.getResourceType());
+        Bundle parallel = (Bundle) fhirJsonParsers.parseResource(response.getOutput());
+        
+        assertEquals(Bundle.BundleType.TRANSACTION, parallel.getType());
+        assertEquals(fullUrls(viaTemplate), fullUrls(parallel));
+        assertEquals(
+            viaTemplate.getEntry().stream().map(e -> e.getResource().fhirType() + " " + e.getRequest().getUrl()).toList(),
+            parallel.getEntry().stream().map(e -> e.getResource().fhirType() + " " + e.getRequest().getUrl()).toList());
+        
+        // Entries are rendered with their own templates, ids follow the entry ids
+        assertTrue(response.getOutput().contains("\"id\":\"patient-new-001\"") || response.getOutput().contains("\"id\": \"patient-new-001\""));
+    }
+    
+    @Test
+    void testParallelBundleReportsFailingEntries() {
+        ConversionRequest request = new ConversionRequest();
+        request.setResourceType("Bundle");
+        request.setParallel(true);
+        request.setInputData(Map.of("entries", List.of(
+            Map.of("resource_type", "Patient", "patient_id", "p1", "family_name", "Doe"),
+            Map.of("method", "POST"),
+            Map.of("resource_type", "NotAResource", "resource_id", "x1"))));
+        
+        ConversionResponse response = conversionService.convert(request);
+        
+        assertFalse(response.isSuccess());
+        assertEquals(2, response.getErrors().size());
+        assertTrue(response.getErrors().get(0).startsWith("entry[1]: "));
+        assertTrue(response.getErrors().get(1).startsWith("entry[2]: "));
+    }
+    
+    private static List<String> fullUrls(Bundle bundle) {
+        return bundle.getEntry().stream().map(Bundle.BundleEntryComponent::getFullUrl).toList();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.fhirconverter;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.example.fhirconverter.exception.ConversionException;
+import com.example.fhirconverter.terminology.ConceptMapStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConceptMapStoreTest {
+
+    private static final FhirContext FHIR_CONTEXT = FhirContext.forR4();
+
+    @TempDir
+    Path mapsDir;
+
+    private ConceptMapStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ConceptMapStore(new PathMatchingResourcePatternResolver(), FHIR_CONTEXT);
+        ReflectionTestUtils.setField(store, "locations",
+            List.of(mapsDir.toUri() + "*.csv", mapsDir.toUri() + "*.json"));
+        // Disable background reloading, the test drives change detection itself
+        ReflectionTestUtils.setField(store, "reloadInterval", Duration.ZERO);
+    }
+
+    @Test
+    void testCsvAndConceptMapFilesAreLoaded() throws IOException {
+        write("codes.csv", """
+            # comment
+            map,source,target
+            gender,M,male
+            gender,F,female
+            "quoted","a,b","say ""hi\"""
+            """, 1_000);
+        write("loinc.json", """
+            {"resourceType": "ConceptMap", "id": "lab", "name": "lab-codes",
+             "group": [{"element": [
+               {"code": "GLU", "target": [{"code": "2345-7", "equivalence": "equivalent"}]},
+               {"code": "NA", "target": [{"code": "2951-2", "equivalence": "equivalent"}, {"code": "other"}]},
+               {"code": "NONE", "target": []}]}]}
+            """, 1_000);
+        store.load();
+
+        assertEquals("male", store.translate("gender", "M"));
+        assertEquals("female", store.translate("gender", "F"));
+        assertNull(store.translate("gender", "X"));
+        assertEquals("say \"hi\"", store.translate("quoted", "a,b"));
+        assertEquals("2345-7", store.translate("lab-codes", "GLU"));
+        assertEquals("2951-2", store.translate("lab-codes", "NA"));
+        assertNull(store.translate("lab-codes", "NONE"));
+        assertNull(store.translate("missing", "M"));
+    }
+
+    @Test
+    void testLargeTable() throws IOException {
+        StringBuilder csv = new StringBuilder("map,source,target\n");
+        for (int i = 0; i < 50_000; i++) {
+            csv.append("big,S").append(i).append(",T").append(i % 100).append('\n');
+        }
+        write("big.csv", csv.toString(), 1_000);
+        store.load();
+
+        assertEquals(50_000, store.size("big"));
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals("T" + (i % 100), store.translate("big", "S" + i));
+        }
+        assertNull(store.translate("big", "S50000"));
+    }
+
+    @Test
+    void testChangedFilesAreReloaded() throws IOException {
+        write("codes.csv", "map,source,target\ngender,M,male\n", 1_000);
+        store.load();
+
+        write("codes.csv", "map,source,target\ngender,M,masculine\n", 2_000);
+        store.reloadIfChanged();
+        assertEquals("masculine", store.translate("gender", "M"));
+
+        // A broken file keeps the tables that were loaded
+        write("codes.csv", "source,target\nM,male\n", 3_000);
+        assertThrows(ConversionException.class, store::reloadIfChanged);
+        assertEquals("masculine", store.translate("gender", "M"));
+
+        Files.delete(mapsDir.resolve("codes.csv"));
+        store.reloadIfChanged();
+        assertNull(store.translate("gender", "M"));
+    }
+
+    private void write(String name, String content, long modifiedMillis) throws IOException {
+        Path file = mapsDir.resolve(name);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    }
+}
@@ -1,23 +1,38 @@
 package com.example.fhirconverter;
 
+import ca.uhn.fhir.context.FhirContext;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 class ConversionControllerTest {
     
     @Autowired
     private MockMvc mockMvc;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Test
     void testPatientConversion() throws Exception {
         String requestJson = """
@@ -41,4 +56,203 @@ class ConversionControllerTest {
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.resourceType").value("Patient"));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testRawFhirJsonConversion() throws Exception {
+        String requestJson = """
+            {
+                "resourceType": "Patient",
+                "inputData": {
+                    "id": "patient-raw",
+                    "family_name": "Doe",
+                    "given_names": ["John"],
+                    "gender": "male"
+                },
+                "validate": %s,
+                "normalize": %s
+            }
+            """;
+        
+        // Streamed straight from the template, and re-encoded by HAPI
+        for (String flags : new String[]{"false", "true"}) {
+            mockMvc.perform(post("/api/v1/convert")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept("application/fhir+json")
+                    .content(requestJson.formatted(flags, flags)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("application/fhir+json"))
+                    .andExpect(jsonPath("$.resourceType").value("Patient"))
+                    .andExpect(jsonPath("$.id").value("patient-raw"))
+                    .andExpect(jsonPath("$.success").doesNotExist());
+        }
+    }
+    
+    @Test
+    void testRawFhirJsonConversionFailureReturnsOperationOutcome() throws Exception {
+        String requestJson = """
+            {
+                "resourceType": "NoSuchTemplate",
+                "inputData": {"id": "x"}
+            }
+            """;
+        
+        mockMvc.perform(post("/api/v1/convert")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept("application/fhir+json")
+                .content(requestJson))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.resourceType").value("OperationOutcome"))
+                .andExpect(jsonPath("$.issue[0].diagnostics").value("No template found for resource type: NoSuchTemplate"));
+    }
+    
+    @Test
+    void testRawFhirJsonFastPathRejectsInvalidOutput() throws Exception {
+        // Neither validated nor normalized, so only the scan sees the rendered id
+        String requestJson = """
+            {
+                "resourceType": "Patient",
+                "inputData": {"id": "not a valid id", "family_name": "Doe"},
+                "validate": false,
+                "normalize": false
+            }
+            """;
+        
+        mockMvc.perform(post("/api/v1/convert")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept("application/fhir+json")
+                .content(requestJson))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.resourceType").value("OperationOutcome"))
+                .andExpect(jsonPath("$.issue[0].diagnostics").value("Invalid resource id 'not a valid id'"));
+    }
+    
+    @Test
+    void testConversionStagesAreMeasured() throws Exception {
+        String requestJson = """
+            {
+                "resourceType": "Patient",
+                "inputData": {"id": "patient-metrics", "family_name": "Doe", "gender": "male"},
+                "validate": true
+            }
+            """;
+        
+        mockMvc.perform(post("/api/v1/convert")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isOk());
+        
+        for (String stage : new String[]{"render", "parse", "validate", "encode"}) {
+            assertThat(meterRegistry.get("fhir.conversion.stage")
+                    .tags("stage", stage, "resource.type", "Patient", "template", "patient")
+                    .timer().count())
+                .as(stage)
+                .isPositive();
+        }
+        
+        // Resource types are tagged with the kebab-case template they are rendered with
+        mockMvc.perform(post("/api/v1/convert")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"resourceType": "MedicationRequest", "inputData": {"id": "medrx-metrics", "status": "active", "intent": "order"}}
+                    """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+        assertThat(meterRegistry.get("fhir.conversion")
+                .tags("outcome", "success", "resource.type", "MedicationRequest", "template", "medication-request")
+                .timer().count())
+            .isPositive();
+        
+        double failuresBefore = meterRegistry.find("fhir.conversion.failures")
+            .tags("stage", "render", "template", "unknown")
+            .counters().stream().mapToDouble(Counter::count).sum();
+        mockMvc.perform(post("/api/v1/convert")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"resourceType": "NoSuchTemplate", "inputData": {}}
+                    """));
+        assertThat(meterRegistry.get("fhir.conversion.failures")
+                .tags("stage", "render", "template", "unknown")
+                .counter().count())
+            .isEqualTo(failuresBefore + 1);
+        
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("fhir_conversion_stage_seconds_bucket")));
+    }
+    
+    @Test
+    void testBatchConversion() throws Exception {
+        String requestJson = """
+            {
+                "requests": [
+                    {"resourceType": "Patient", "inputData": {"id": "batch-1", "family_name": "Doe"}},
+                    {"resourceType": "NoSuchTemplate", "inputData": {}},
+                    {"resourceType": "Patient", "inputData": {"id": "batch-3", "family_name": "Roe"}, "validate": true}
+                ],
+                "bundle": true
+            }
+            """;
+        
+        mockMvc.perform(post("/api/v1/convert/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].resourceId").value("batch-1"))
+                .andExpect(jsonPath("$.results[0].output").value(containsString("\"family\":\"Doe\"")))
+                .andExpect(jsonPath("$.results[1].success").value(false))
+                .andExpect(jsonPath("$.results[2].resourceId").value("batch-3"))
+                // No transaction Bundle unless every record converted
+                .andExpect(jsonPath("$.bundle").doesNotExist());
+    }
+    
+    @Test
+    void testBatchConversionAsTransactionBundle() throws Exception {
+        String requestJson = """
+            {
+                "requests": [
+                    {"resourceType": "Patient", "inputData": {"id": "batch-a", "family_name": "Doe"}},
+                    {"resourceType": "Patient", "inputData": {"id": "batch-b", "family_name": "Roe"}, "normalize": false},
+                    {"resourceType": "Patient", "inputData": {"id": "5b0c7a4e-2f1d-4e8a-9c3b-6d2e1f0a9b87", "family_name": "Poe"}}
+                ],
+                "bundle": true
+            }
+            """;
+        
+        String bundle = JsonPath.read(mockMvc.perform(post("/api/v1/convert/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(3))
+                .andExpect(jsonPath("$.results[0].output").doesNotExist())
+                .andReturn().getResponse().getContentAsString(), "$.bundle");
+        
+        Bundle parsed = FhirContext.forR4Cached().newJsonParser().parseResource(Bundle.class, bundle);
+        assertThat(parsed.getType()).isEqualTo(Bundle.BundleType.TRANSACTION);
+        assertThat(parsed.getEntry()).hasSize(3);
+        // urn:uuid: fullUrls hold a UUID: a fresh one for ids that aren't UUIDs
+        assertThat(parsed.getEntry().get(1).getFullUrl())
+            .matches("urn:uuid:[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+        assertThat(parsed.getEntry().get(2).getFullUrl()).isEqualTo("urn:uuid:5b0c7a4e-2f1d-4e8a-9c3b-6d2e1f0a9b87");
+        assertThat(parsed.getEntry().get(1).getRequest().getUrl()).isEqualTo("Patient");
+        assertThat(((Patient) parsed.getEntry().get(1).getResource()).getNameFirstRep().getFamily()).isEqualTo("Roe");
+    }
+    
+    @Test
+    void testBatchConversionRequiresRequests() throws Exception {
+        mockMvc.perform(post("/api/v1/convert/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"requests\": [{\"inputData\": {}}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details[0]").value(containsString("resourceType")));
+    }
+    
+    @Test
+    void testTemplatesEndpointListsServedTemplates() throws Exception {
+        mockMvc.perform(get("/actuator/templates"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.templates.patient.compiledAt").exists())
+                .andExpect(jsonPath("$.errors").isMap());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.fhirconverter;
+
+import com.example.fhirconverter.model.ConversionJob;
+import com.example.fhirconverter.service.BulkConversionService;
+import com.example.fhirconverter.service.ConversionJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "fhir.converter.jobs.directory=target/test-jobs")
+@AutoConfigureMockMvc
+class ConversionJobControllerTest {
+
+    private static final String PATIENT_LINE =
+        "{\"resourceType\":\"Patient\",\"inputData\":{\"id\":\"job-p1\",\"family_name\":\"Doe\",\"given_names\":[\"Jane\"]}}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ConversionJobService conversionJobService;
+
+    @Autowired
+    private BulkConversionService bulkConversionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testBulkJobRunsInBackgroundAndReturnsNdjsonResult() throws Exception {
+        String ndjson = PATIENT_LINE + "\n{\"resourceType\":\"Patient\"}\n";
+
+        MvcResult submitted = mockMvc.perform(post("/api/v1/jobs")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists("Location"))
+            .andExpect(jsonPath("$.status").value("QUEUED"))
+            .andReturn();
+        String id = objectMapper.readTree(submitted.getResponse().getContentAsString()).get("id").asText();
+
+        ConversionJob job = awaitFinished(conversionJobService, id);
+        assertEquals(ConversionJob.Status.COMPLETED, job.getStatus());
+        assertEquals(2, job.getRecords());
+        assertEquals(1, job.getFailed());
+
+        String[] lines = mockMvc.perform(get("/api/v1/jobs/{id}/result", id))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"job-p1\""));
+        assertTrue(lines[1].contains("\"OperationOutcome\""));
+
+        mockMvc.perform(delete("/api/v1/jobs/{id}", id))
+            .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/v1/jobs/{id}", id))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testSingleRequestJob() throws Exception {
+        MvcResult submitted = mockMvc.perform(post("/api/v1/jobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(PATIENT_LINE))
+            .andExpect(status().isAccepted())
+            .andReturn();
+        String id = objectMapper.readTree(submitted.getResponse().getContentAsString()).get("id").asText();
+
+        assertEquals(ConversionJob.Status.COMPLETED, awaitFinished(conversionJobService, id).getStatus());
+        mockMvc.perform(get("/api/v1/jobs/{id}", id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.succeeded").value(1));
+    }
+
+    @Test
+    void testUnknownJobs() throws Exception {
+        mockMvc.perform(get("/api/v1/jobs/{id}", UUID.randomUUID()))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/jobs/{id}/result", "..%2F..%2Fpom.xml"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testInterruptedJobsAreRunAgainOnStartup(@TempDir Path directory) throws Exception {
+        // A job that was running when the application stopped, with partial output
+        String id = UUID.randomUUID().toString();
+        Path jobDirectory = Files.createDirectories(directory.resolve(id));
+        Files.writeString(jobDirectory.resolve("input.ndjson"), PATIENT_LINE + "\n" + PATIENT_LINE + "\n");
+        Files.writeString(jobDirectory.resolve("output.ndjson"), "{\"resourceType\":\"Pat");
+        objectMapper.writeValue(jobDirectory.resolve("status.json").toFile(), ConversionJob.builder()
+            .id(id)
+            .status(ConversionJob.Status.RUNNING)
+            .submittedAt(Instant.now())
+            .startedAt(Instant.now())
+            .build());
+        // A submission that never got its status file
+        Path incomplete = Files.createDirectories(directory.resolve(UUID.randomUUID().toString()));
+        Files.writeString(incomplete.resolve("input.ndjson"), PATIENT_LINE);
+
+        ConversionJobService restarted = new ConversionJobService(bulkConversionService, objectMapper);
+        ReflectionTestUtils.setField(restarted, "directory", directory);
+        ReflectionTestUtils.setField(restarted, "workers", 1);
+        ReflectionTestUtils.invokeMethod(restarted, "start");
+        try {
+            ConversionJob job = awaitFinished(restarted, id);
+
+            assertEquals(ConversionJob.Status.COMPLETED, job.getStatus());
+            assertEquals(2, job.getSucceeded());
+            assertEquals(2, Files.readAllLines(jobDirectory.resolve("output.ndjson")).size());
+            assertFalse(Files.exists(incomplete));
+        } finally {
+            ReflectionTestUtils.invokeMethod(restarted, "shutdown");
+        }
+    }
+
+    private static ConversionJob awaitFinished(ConversionJobService service, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            ConversionJob job = service.find(id).orElseThrow();
+            if (job.getStatus() == ConversionJob.Status.COMPLETED || job.getStatus() == ConversionJob.Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Job " + id + " did not finish");
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.fhirconverter;
 
 import com.example.fhirconverter.filters.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import liqp.TemplateParser;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -25,6 +27,18 @@ class FhirFilterTests {
     @Autowired
     private FhirNamePartsFilter namePartsFilter;
     
+    @Autowired
+    private FhirIdentifierFilter identifierFilter;
+    
+    @Autowired
+    private FhirUnitFilter unitFilter;
+    
+    @Autowired
+    private TemplateParser templateParser;
+    
+    @Autowired
+    private FhirQuantityFilter quantityFilter;
+    
     @Test
     void testDateFilter() {
         // Test date format conversion
@@ -39,6 +53,43 @@ class FhirFilterTests {
         assertNull(dateFilter.apply(null, null));
     }
     
+    @Test
+    void testDateFilterInputShapes() {
+        // Single-digit month and day, trailing time ignored
+        assertEquals("1990-01-05", dateFilter.apply("1/5/1990", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        assertEquals("2024-03-15", dateFilter.apply("03/15/2024 09:30", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        
+        // ISO date and instant fall back regardless of the input pattern
+        assertEquals("1990-01-15", dateFilter.apply("1990-01-15", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        assertEquals("2024", dateFilter.apply("2024-03-15T12:00:00Z", null, "MM/dd/yyyy", "yyyy"));
+        
+        // Custom patterns, including an unquoted literal 'T' in the output
+        assertEquals("2024-03-15T09:30:00",
+            dateFilter.apply("3/15/2024 09:30", null, "MM/dd/yyyy HH:mm", "yyyy-MM-ddTHH:mm:ss"));
+        assertEquals("2024-03-15 21:05",
+            dateFilter.apply("2024.03.15 09:05 PM", null, "yyyy.MM.dd hh:mm a", "yyyy-MM-dd HH:mm"));
+        
+        // Unparseable or out-of-range values are returned unchanged
+        assertEquals("unknown", dateFilter.apply("unknown", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        assertEquals("02/30/2024", dateFilter.apply("02/30/2024", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        assertEquals("03/15/2024", dateFilter.apply("03/15/2024", null, "MM/dd/yyyy HH:mm", "yyyy-MM-dd"));
+    }
+    
+    @Test
+    void testDateFilterDiffersFromSimpleDateFormat() {
+        // Lenient SimpleDateFormat rolled dates that don't exist over into the next month or
+        // year; they are now returned unchanged, so the resource fails validation instead of
+        // carrying a different date
+        assertEquals("02/30/2024", dateFilter.apply("02/30/2024", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        assertEquals("13/01/2024", dateFilter.apply("13/01/2024", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        assertEquals("2024-02-29", dateFilter.apply("02/29/2024", null, "MM/dd/yyyy", "yyyy-MM-dd"));
+        
+        // An ISO date that doesn't match the input pattern used to be returned as it was; it is
+        // now reformatted like any other date
+        assertEquals("1815", dateFilter.apply("1815-12-10", null, "MM/dd/yyyy", "yyyy"));
+        assertEquals("12/10/1815", dateFilter.apply("1815-12-10", null, "MM/dd/yyyy", "MM/dd/yyyy"));
+    }
+    
     @Test
     void testPhoneFilter() {
         // Test US phone formatting
@@ -53,6 +104,46 @@ class FhirFilterTests {
         assertEquals("mobile", result.get("use"));
     }
     
+    @Test
+    void testPhoneFilterNormalization() {
+        // Trunk prefix dropped, punctuation stripped
+        assertEquals("(555) 123-4567", phoneValue(phoneFilter, "1-555-123-4567"));
+        assertEquals("5551234", phoneValue(phoneFilter, "555-1234"));
+        // Ten digits starting with 1 have no trunk prefix; the regex version dropped the 1 and
+        // formatted the nine digits left as "(555) 123-456"
+        assertEquals("(155) 512-3456", phoneValue(phoneFilter, "1555123456"));
+        
+        // International numbers are only stripped of punctuation
+        assertEquals("+15551234567", phoneValue(phoneFilter, "+1-555-123-4567"));
+        
+        // Unknown regions fall back to the cleaned digits
+        assertEquals("02079460958", phoneValue(phoneFilter, "020 7946 0958", "mobile", "GB"));
+        
+        // Additional regions plug in as PhoneNumberFormat implementations
+        FhirPhoneFilter ukFilter = new FhirPhoneFilter(
+            List.of(new MaskedPhoneNumberFormat("GB", "0", "0## #### ####")), "GB");
+        assertEquals("020 7946 0958", phoneValue(ukFilter, "020 7946 0958"));
+        assertEquals("020 7946 0958", phoneValue(ukFilter, "2079460958"));
+    }
+    
+    @Test
+    void testIdentifierFilterSsn() {
+        Map<String, Object> result = (Map<String, Object>) identifierFilter.apply("123456789", null, "SSN");
+        assertEquals("123-45-6789", result.get("value"));
+        assertEquals("http://hl7.org/fhir/sid/us-ssn", result.get("system"));
+        
+        // Anything other than nine digits is left as-is
+        result = (Map<String, Object>) identifierFilter.apply("123-45-6789", null, "ssn");
+        assertEquals("123-45-6789", result.get("value"));
+        result = (Map<String, Object>) identifierFilter.apply("12345678A", null, "SSN");
+        assertEquals("12345678A", result.get("value"));
+    }
+    
+    private static Object phoneValue(FhirPhoneFilter filter, String phone, Object... params) {
+        Object[] args = params.length > 0 ? params : new Object[]{"home"};
+        return ((Map<?, ?>) filter.apply(phone, null, args)).get("value");
+    }
+    
     @Test
     void testCodeFilter() {
         // Test gender mapping
@@ -65,6 +156,91 @@ class FhirFilterTests {
         assertEquals("X", codeFilter.apply("X", null, "gender"));
     }
     
+    @Test
+    void testUnitFilter() {
+        // Codes, aliases and case variants normalize to the UCUM code
+        Map<String, Object> result = (Map<String, Object>) unitFilter.apply("mmHg", null);
+        assertEquals("mmHg", result.get("unit"));
+        assertEquals("http://unitsofmeasure.org", result.get("system"));
+        assertEquals("mm[Hg]", result.get("code"));
+        assertEquals("mg/dL", ((Map<String, Object>) unitFilter.apply("MG/DL", null)).get("code"));
+        assertEquals("ug", ((Map<String, Object>) unitFilter.apply("mcg", null)).get("code"));
+        assertEquals("Cel", ((Map<String, Object>) unitFilter.apply("°C", null)).get("code"));
+        
+        // Units that differ only in case are told apart by case alone
+        assertEquals("mmol/L", ((Map<String, Object>) unitFilter.apply("mM", null)).get("code"));
+        assertEquals("mm", ((Map<String, Object>) unitFilter.apply("mm", null)).get("code"));
+        
+        // Unknown units are kept as their own code
+        assertEquals("widgets", ((Map<String, Object>) unitFilter.apply("widgets", null)).get("code"));
+        
+        // The same unit string shares one fragment
+        assertSame(unitFilter.apply("mg", null), unitFilter.apply("mg", null));
+        assertSame(unitFilter.apply("widgets", null), unitFilter.apply("widgets", null));
+    }
+    
+    @Test
+    void testQuantityFilter() {
+        Map<String, Object> result = (Map<String, Object>) quantityFilter.apply(5.4, null, "mmol/l");
+        assertEquals(5.4, result.get("value"));
+        assertEquals("mmol/l", result.get("unit"));
+        assertEquals("mmol/L", result.get("code"));
+        
+        // Canonical values convert to the canonical unit of the dimension
+        result = (Map<String, Object>) quantityFilter.apply(98, null, "mg/dL", "canonical");
+        assertEquals("0.98", result.get("value").toString());
+        assertEquals("g/L", result.get("code"));
+        assertEquals("37", quantityFilter.quantity("98.6", "°F", true).get("value").toString());
+        assertEquals("70000", quantityFilter.quantity(70, "kg", true).get("value").toString());
+        
+        // Values that can't be converted are kept in their own unit
+        result = (Map<String, Object>) quantityFilter.apply("high", null, "mg/dL", "canonical");
+        assertEquals("high", result.get("value"));
+        assertEquals("mg/dL", result.get("code"));
+    }
+    
+    @Test
+    void testFusedJsonFiltersMatchJson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Object> values = new java.util.ArrayList<>(List.of(
+            "123456789", "John  Michael\tDoe", "Madonna", "", "  ", "O\"Brien \\ Ñúñez\n\u0001",
+            "123 Main St, Boston, MA, 02101", "1 Elm St", ",,", "(555) 123-4567", "+44 20 7946 0958",
+            Map.of("line", List.of("1 Elm St"), "city", "Springfield"), 42));
+        values.add(null);
+        List<String> chains = List.of("fhir_identifier", "fhir_identifier: 'SSN'", "fhir_name_parts",
+            "fhir_phone", "fhir_phone: 'mobile', 'GB'", "fhir_address");
+        
+        for (String chain : chains) {
+            String fused = chain.replaceFirst("^(\\w+)", "$1_json");
+            for (Object value : values) {
+                Map<String, Object> data = new java.util.HashMap<>();
+                data.put("v", value);
+                String expected = templateParser.parse("{{ v | " + chain + " | json }}").render(data);
+                String actual = templateParser.parse("{{ v | " + fused + " }}").render(data);
+                assertEquals(objectMapper.readTree(expected), objectMapper.readTree(actual), chain + " of " + value);
+            }
+        }
+    }
+    
+    @Test
+    void testJsonFilterChainsAreFused() {
+        assertEquals("{{ ssn | fhir_identifier_json: 'SSN' }}",
+            FusedJsonFilters.fuse("{{ ssn | fhir_identifier: 'SSN' | json }}", templateParser.filters));
+        assertEquals("{{ full_name | fhir_name_parts_json }}",
+            FusedJsonFilters.fuse("{{ full_name | fhir_name_parts | json }}", templateParser.filters));
+        assertEquals("{%- assign t = phone | fhir_phone_json: 'home' -%}",
+            FusedJsonFilters.fuse("{%- assign t = phone | fhir_phone: 'home' | json -%}", templateParser.filters));
+        
+        // Not fused: another filter in between, no json, or a filter without a fused variant
+        for (String source : List.of(
+                "{{ p.number | fhir_phone: p.use | default: 'home' | json }}",
+                "{% assign name = full_name | fhir_name_parts %}",
+                "{{ unit | fhir_unit | json }}",
+                "{{ phone | fhir_phone: 'home' | jsonify }}")) {
+            assertEquals(source, FusedJsonFilters.fuse(source, templateParser.filters));
+        }
+    }
+    
     @Test
     void testNamePartsFilter() {
         // Test full name parsing
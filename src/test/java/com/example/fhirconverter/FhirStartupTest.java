@@ -0,0 +1,120 @@
+package com.example.fhirconverter;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.example.fhirconverter.config.StartupTimings;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.service.ConversionService;
+import com.example.fhirconverter.service.FhirModelPreloader;
+import com.example.fhirconverter.service.TemplateService;
+import com.example.fhirconverter.util.FhirParserPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class FhirStartupTest {
+
+    @Autowired
+    private FhirModelPreloader fhirModelPreloader;
+
+    @Autowired
+    private FhirParserPool fhirJsonParsers;
+
+    @Autowired
+    private TemplateService templateService;
+
+    @Autowired
+    private ConversionService conversionService;
+
+    @Autowired
+    private StartupTimings startupTimings;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testTemplatedResourceTypesArePreloaded() {
+        assertEquals(Set.of("Bundle", "Encounter", "MedicationRequest", "Observation", "OperationOutcome", "Patient"),
+            fhirModelPreloader.templatedResourceTypes());
+    }
+
+    @Test
+    void testParserPoolIsSafeToShareBetweenThreads() throws Exception {
+        ConversionRequest request;
+        try (InputStream is = new ClassPathResource("examples/patient-complex.json").getInputStream()) {
+            request = objectMapper.readValue(is, ConversionRequest.class);
+        }
+        String rendered = templateService.renderTemplate(request.getResourceType(), request.getInputData());
+        String expected = fhirJsonParsers.encodeResourceToString(fhirJsonParsers.parseResource(rendered));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> fhirJsonParsers.encodeResourceToString(fhirJsonParsers.parseResource(rendered))));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCompactEncodingKeepsThePoolOptions() {
+        FhirParserPool pool = new FhirParserPool(FhirContext.forR4Cached(), 1, parser -> parser.setPrettyPrint(true));
+        Patient patient = new Patient();
+        patient.setId("p1");
+        patient.setActive(true);
+
+        assertFalse(pool.encodeResourceToCompactString(patient).contains("\n"));
+        // The same parser is pretty printing again when it is next borrowed
+        assertTrue(pool.encodeResourceToString(patient).contains("\n"));
+    }
+
+    @Test
+    void testStartupPhasesArePublished() {
+        assertTrue(startupTimings.getPhaseMillis().containsKey("runners"));
+        assertTrue(startupTimings.getPhaseMillis().containsKey("templateRegistry"), () -> startupTimings.getPhaseMillis().toString());
+        assertNotNull(meterRegistry.find("fhir.startup.phase").tag("phase", "runners").timeGauge());
+    }
+
+    @Test
+    void testWarmUpIsNotRecorded() throws Exception {
+        ConversionRequest request;
+        try (InputStream is = new ClassPathResource("examples/medication-request-oral.json").getInputStream()) {
+            request = objectMapper.readValue(is, ConversionRequest.class);
+        }
+        long conversions = count("fhir.conversion");
+        long validations = count("fhir.validation");
+
+        assertTrue(request.isValidate());
+        assertTrue(conversionService.warmUp(request).isSuccess());
+
+        assertEquals(conversions, count("fhir.conversion"));
+        assertEquals(validations, count("fhir.validation"));
+    }
+
+    private long count(String timer) {
+        return meterRegistry.find(timer).timers().stream().mapToLong(Timer::count).sum();
+    }
+}
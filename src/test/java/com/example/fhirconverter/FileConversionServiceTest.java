@@ -0,0 +1,134 @@
+package com.example.fhirconverter;
+
+import com.example.fhirconverter.model.FileConversionSummary;
+import com.example.fhirconverter.service.FileConversionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "fhir.converter.file-conversion.shards=3",
+    "fhir.converter.file-conversion.checkpoint-interval=2",
+    "fhir.converter.file-conversion.map-window=256B"
+})
+class FileConversionServiceTest {
+
+    @Autowired
+    private FileConversionService fileConversionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testNdjsonIsConvertedInShardsInInputOrder() throws IOException {
+        Path input = write("extract.ndjson", ndjson(7, 4));
+
+        FileConversionSummary summary = fileConversionService.convert(input, directory.resolve("out"));
+
+        assertEquals(7, summary.getRecords());
+        assertEquals(1, summary.getFailed());
+        assertEquals(3, summary.getShards());
+        List<String> lines = output("extract");
+        assertEquals(7, lines.size());
+        for (int i = 0; i < 7; i++) {
+            if (i == 4) {
+                assertTrue(lines.get(i).contains("\"resourceType\":\"OperationOutcome\""));
+                assertTrue(lines.get(i).contains("Invalid record"));
+            } else {
+                assertTrue(lines.get(i).contains("\"id\":\"file-" + i + "\""), lines.get(i));
+            }
+        }
+        assertFalse(Files.exists(directory.resolve("out/extract.checkpoint.json")));
+    }
+
+    @Test
+    void testJsonArraySpanningMapWindowsIsConverted() throws IOException {
+        StringBuilder array = new StringBuilder("[\n");
+        for (int i = 0; i < 6; i++) {
+            array.append(i > 0 ? ",\n" : "").append("""
+                  {
+                    "resourceType": "Patient",
+                    "inputData": {"id": "file-%d", "family_name": "Doe {%d}", "given_names": ["John"]}
+                  }""".formatted(i, i));
+        }
+        Path input = write("extract.json", array.append("\n]\n").toString());
+
+        FileConversionSummary summary = fileConversionService.convert(input, directory.resolve("out"));
+
+        assertEquals(6, summary.getSucceeded());
+        List<String> lines = output("extract");
+        assertEquals(6, lines.size());
+        for (int i = 0; i < 6; i++) {
+            assertTrue(lines.get(i).contains("\"family\":\"Doe {" + i + "}\""), lines.get(i));
+        }
+    }
+
+    @Test
+    void testResumeContinuesFromCheckpoint() throws IOException {
+        String ndjson = ndjson(5, -1);
+        Path input = write("extract.ndjson", ndjson);
+        fileConversionService.convert(input, directory.resolve("full"));
+        List<String> expected = output("full", "extract");
+
+        // An interrupted single-shard run: two records checkpointed, then a partial line after it
+        Path out = Files.createDirectories(directory.resolve("out"));
+        String converted = expected.get(0) + "\n" + expected.get(1) + "\n";
+        Files.writeString(out.resolve("extract-000.ndjson"), converted + "{\"resourceType\":\"Pat");
+        long position = ndjson.indexOf("\n", ndjson.indexOf("\n") + 1) + 1;
+        FileConversionService.Checkpoint checkpoint = new FileConversionService.Checkpoint(
+            input.toAbsolutePath().toString(), Files.size(input), Files.getLastModifiedTime(input).toMillis(),
+            List.of(new FileConversionService.ShardState(0, 0, Files.size(input), position,
+                converted.getBytes(StandardCharsets.UTF_8).length, 2, 0)));
+        objectMapper.writeValue(out.resolve("extract.checkpoint.json").toFile(), checkpoint);
+
+        FileConversionSummary summary = fileConversionService.convert(input, out);
+
+        assertEquals(5, summary.getRecords());
+        assertEquals(2, summary.getResumedRecords());
+        assertEquals(1, summary.getShards());
+        assertEquals(expected, output("out", "extract"));
+    }
+
+    private String ndjson(int records, int invalid) {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            ndjson.append(i == invalid
+                ? "{\"resourceType\": \"Patient\", \"inputData\": {\n"
+                : "{\"resourceType\": \"Patient\", \"inputData\": {\"id\": \"file-%d\", \"family_name\": \"Doe\"}}\n".formatted(i));
+        }
+        return ndjson.toString();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    private List<String> output(String baseName) throws IOException {
+        return output("out", baseName);
+    }
+
+    /** The lines of all shard files, in shard order. */
+    private List<String> output(String outputDirectory, String baseName) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (var files = Files.list(directory.resolve(outputDirectory))) {
+            for (Path file : files.filter(path -> path.getFileName().toString().startsWith(baseName + "-")).sorted().toList()) {
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.fhirconverter;
+
+import com.example.fhirconverter.util.IdGenerator;
+import com.example.fhirconverter.util.IdGenerators;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorsTest {
+
+    private static final Map<String, Object> INPUT = Map.of("family_name", "Doe", "given_names", List.of("John"));
+
+    @Test
+    void testRandomIdsAreVersion4() {
+        for (String strategy : List.of("random", "fast-random")) {
+            IdGenerator generator = IdGenerators.of(strategy, new ObjectMapper());
+            Set<String> ids = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                UUID id = UUID.fromString(generator.newId("patient", INPUT));
+                assertEquals(4, id.version(), strategy);
+                assertEquals(2, id.variant(), strategy);
+                ids.add(id.toString());
+            }
+            assertEquals(1000, ids.size(), strategy);
+        }
+    }
+
+    @Test
+    void testTimeOrderedIdsStartWithTheirMillisecond() throws InterruptedException {
+        IdGenerator generator = IdGenerators.timeOrdered();
+        long before = System.currentTimeMillis();
+        String first = generator.newId("patient", INPUT);
+        Thread.sleep(2);
+        String second = generator.newId("patient", INPUT);
+
+        UUID id = UUID.fromString(first);
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= System.currentTimeMillis());
+        assertTrue(first.compareTo(second) < 0, first + " sorts after " + second);
+    }
+
+    @Test
+    void testContentIdsAreDerivedFromTemplateAndInput() {
+        IdGenerator generator = IdGenerators.of("content", new ObjectMapper());
+        String id = generator.newId("patient", INPUT);
+
+        UUID uuid = UUID.fromString(id);
+        assertEquals(5, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        // The same input in another key order is the same input
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("given_names", List.of("John"));
+        reordered.put("family_name", "Doe");
+        assertEquals(id, generator.newId("patient", reordered));
+        assertEquals(id, IdGenerators.content(new ObjectMapper()).newId("patient", INPUT));
+
+        assertNotEquals(id, generator.newId("observation", INPUT));
+        assertNotEquals(id, generator.newId("patient", Map.of("family_name", "Doe", "given_names", List.of("Jon"))));
+    }
+
+    @Test
+    void testUnknownStrategyFails() {
+        assertThrows(IllegalArgumentException.class, () -> IdGenerators.of("sequential", new ObjectMapper()));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.fhirconverter;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+import com.example.fhirconverter.mapping.PatientMapper;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.model.ConversionResponse;
+import com.example.fhirconverter.service.ConversionService;
+import com.example.fhirconverter.service.TemplateService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "fhir.converter.direct-mapping.resource-types=Patient")
+class PatientMapperTest {
+
+    @Autowired
+    private PatientMapper patientMapper;
+
+    @Autowired
+    private TemplateService templateService;
+
+    @Autowired
+    private ConversionService conversionService;
+
+    @Autowired
+    private FhirContext fhirContext;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testMappedPatientMatchesTemplate() throws IOException {
+        for (String example : List.of("patient-simple", "patient-complex", "patient-with-filters")) {
+            assertSameAsTemplate(example, load(example).getInputData());
+        }
+
+        // Branches the examples don't take
+        assertSameAsTemplate("single values", Map.of(
+            "identifier_value", "ID-1",
+            "active", "false",
+            "full_name", "Ada Lovelace",
+            "gender", "unknown",
+            "date_of_birth", "1815-12-10",
+            "deceased", "true",
+            "email", "ada@example.org",
+            "address", Map.of("street", "12 St James's Square", "city", "London", "country", "GB"),
+            "emergency_contact", Map.of("name", "Mary Somerville", "phone", "+44 20 7946 0000"),
+            "languages", List.of("EN", "fr")));
+        assertSameAsTemplate("scalar values", Map.of(
+            "medical_record_number", 42,
+            "family_name", "Doe",
+            "given_names", "John",
+            "birth_date", "",
+            "phones", List.of("555 010 0100", Map.of("number", "5550100101")),
+            "race", "Other"));
+    }
+
+    @Test
+    void testInvalidValuesFailAsWithTemplate() {
+        Map<String, Object> data = Map.of("id", "patient-1", "birth_date", "not a date");
+        IParser parser = fhirContext.newJsonParser();
+
+        assertThrows(DataFormatException.class,
+            () -> parser.parseResource(templateService.renderTemplate("Patient", data)));
+        assertThrows(DataFormatException.class, () -> patientMapper.map(data));
+    }
+
+    @Test
+    void testEnabledTypeConvertsWithoutTemplate() throws IOException {
+        ConversionRequest request = load("patient-complex");
+        double mapped = stageCount("map");
+        double rendered = stageCount("render");
+
+        ConversionResponse response = conversionService.convert(request);
+
+        assertTrue(response.isSuccess(), () -> "Unexpected errors: " + response.getErrors());
+        assertEquals("Patient", response.getResourceType());
+        assertTrue(response.getOutput().contains("\"family\":\"Smith\""));
+        assertEquals(mapped + 1, stageCount("map"));
+        assertEquals(rendered, stageCount("render"));
+    }
+
+    private void assertSameAsTemplate(String name, Map<String, Object> inputData) {
+        Map<String, Object> data = new LinkedHashMap<>(inputData);
+        data.put("id", "patient-1");
+
+        IParser parser = fhirContext.newJsonParser();
+        String expected = parser.encodeResourceToString(parser.parseResource(templateService.renderTemplate("Patient", data)));
+        String actual = parser.encodeResourceToString(patientMapper.map(data));
+
+        assertEquals(expected, actual, name);
+    }
+
+    private ConversionRequest load(String example) throws IOException {
+        try (InputStream is = new ClassPathResource("examples/" + example + ".json").getInputStream()) {
+            return objectMapper.readValue(is, ConversionRequest.class);
+        }
+    }
+
+    private double stageCount(String stage) {
+        return meterRegistry.find("fhir.conversion.stage").tags("stage", stage, "template", "patient")
+            .timers().stream().mapToDouble(timer -> timer.count()).sum();
+    }
+}
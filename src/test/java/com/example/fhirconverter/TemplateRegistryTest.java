@@ -0,0 +1,122 @@
+package com.example.fhirconverter;
+
+import com.example.fhirconverter.exception.TemplateException;
+import com.example.fhirconverter.service.CompiledTemplate;
+import com.example.fhirconverter.service.TemplateRegistry;
+import liqp.TemplateParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateRegistryTest {
+
+    @TempDir
+    Path templatesDir;
+
+    private TemplateRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        write("patient.liquid", "{\"resourceType\": \"Patient\", \"id\": \"{{ id }}\"}", 1_000);
+
+        registry = new TemplateRegistry(new TemplateParser.Builder().build(), new PathMatchingResourcePatternResolver());
+        ReflectionTestUtils.setField(registry, "templatesPath", templatesDir.toUri().toString());
+        // Disable background polling, the test drives change detection itself
+        ReflectionTestUtils.setField(registry, "checkInterval", Duration.ZERO);
+        registry.compileAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void testTemplatesAreCompiledOnceAtStartup() {
+        CompiledTemplate first = registry.get("Patient");
+        CompiledTemplate second = registry.get("patient");
+
+        assertSame(first, second);
+        assertEquals("{\"resourceType\": \"Patient\", \"id\": \"p1\"}", first.template().render(Map.of("id", "p1")));
+        assertThrows(TemplateException.class, () -> registry.get("Observation"));
+    }
+
+    @Test
+    void testResourceTypesFindTheirKebabCaseTemplate() throws IOException {
+        write("medication-request.liquid", "{\"resourceType\": \"MedicationRequest\"}", 1_000);
+        ReflectionTestUtils.invokeMethod(registry, "recompileChanged");
+
+        assertSame(registry.get("medication-request"), registry.get("MedicationRequest"));
+        assertSame(registry.get("patient"), registry.get("PATIENT"));
+        assertThrows(TemplateException.class, () -> registry.get("MedicationStatement"));
+    }
+
+    @Test
+    void testOnlyChangedTemplatesAreRecompiled() throws IOException {
+        CompiledTemplate original = registry.get("Patient");
+
+        ReflectionTestUtils.invokeMethod(registry, "recompileChanged");
+        assertSame(original, registry.get("Patient"));
+
+        write("patient.liquid", "{\"resourceType\": \"Patient\", \"id\": \"v2-{{ id }}\"}", 2_000);
+        ReflectionTestUtils.invokeMethod(registry, "recompileChanged");
+
+        assertNotSame(original, registry.get("Patient"));
+        assertTrue(registry.get("Patient").template().render(Map.of("id", "p1")).contains("v2-p1"));
+    }
+
+    @Test
+    void testBrokenTemplateKeepsPreviousVersion() throws IOException {
+        CompiledTemplate original = registry.get("Patient");
+
+        write("patient.liquid", "{% if id %}never closed", 2_000);
+        ReflectionTestUtils.invokeMethod(registry, "recompileChanged");
+
+        assertSame(original, registry.get("Patient"));
+        assertTrue(registry.getCompileErrors().containsKey("patient"));
+
+        write("patient.liquid", "{\"resourceType\": \"Patient\", \"id\": \"fixed\"}", 3_000);
+        ReflectionTestUtils.invokeMethod(registry, "recompileChanged");
+
+        assertNotSame(original, registry.get("Patient"));
+        assertTrue(registry.getCompileErrors().isEmpty());
+    }
+
+    @Test
+    void testWatchedTemplatesAreRecompiledOnChange() throws Exception {
+        registry.shutdown();
+        registry = new TemplateRegistry(new TemplateParser.Builder().build(), new PathMatchingResourcePatternResolver());
+        ReflectionTestUtils.setField(registry, "templatesPath", templatesDir.toUri().toString());
+        ReflectionTestUtils.setField(registry, "checkInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(registry, "watch", true);
+        ReflectionTestUtils.setField(registry, "watchDebounce", Duration.ofMillis(50));
+        registry.compileAll();
+        CompiledTemplate original = registry.get("Patient");
+
+        write("patient.liquid", "{\"resourceType\": \"Patient\", \"id\": \"watched-{{ id }}\"}", 2_000);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (registry.get("Patient") == original && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(registry.get("Patient").template().render(Map.of("id", "p1")).contains("watched-p1"));
+    }
+
+    private void write(String name, String content, long lastModifiedMillis) throws IOException {
+        Path file = templatesDir.resolve(name);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModifiedMillis));
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.fhirconverter;
+
+import com.example.fhirconverter.filters.FhirCodeFilter;
+import com.example.fhirconverter.model.ConversionRequest;
+import com.example.fhirconverter.service.TemplateRegistry;
+import com.example.fhirconverter.service.TemplateService;
+import com.example.fhirconverter.terminology.ConceptMapStore;
+import com.example.fhirconverter.util.JsonObject;
+import com.example.fhirconverter.util.OverlayMap;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import liqp.TemplateParser;
+import liqp.filters.Filter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TemplateServiceTest {
+
+    @Autowired
+    private TemplateService templateService;
+
+    @Autowired
+    private TemplateRegistry templateRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConceptMapStore conceptMapStore;
+
+    @Test
+    void testFilteredTemplatesAreCompiledOncePerFilterSet() {
+        Map<String, Object> data = Map.of("id", "p1", "family_name", "Doe", "given_names", List.of("John"));
+        List<Filter> tenantFilters = List.of(new FhirCodeFilter(conceptMapStore));
+
+        double hits = cacheGets("hit");
+        double misses = cacheGets("miss");
+
+        String first = templateService.renderTemplateWithFilters("Patient-simple", data, tenantFilters);
+        // A new list holding the same filter instances is the same filter set
+        String second = templateService.renderTemplateWithFilters("Patient-simple", data, List.copyOf(tenantFilters));
+        // Another filter instance is a different filter set
+        templateService.renderTemplateWithFilters("Patient-simple", data, List.of(new FhirCodeFilter(conceptMapStore)));
+
+        assertEquals(first, second);
+        assertTrue(first.contains("\"p1\""));
+        assertEquals(hits + 1, cacheGets("hit"));
+        assertEquals(misses + 2, cacheGets("miss"));
+    }
+
+    @Test
+    void testStreamingRenderMatchesStringRender() throws IOException {
+        Resource[] examples = new PathMatchingResourcePatternResolver().getResources("classpath:examples/*.json");
+        assertTrue(examples.length > 0);
+
+        for (Resource example : examples) {
+            ConversionRequest request;
+            try (InputStream is = example.getInputStream()) {
+                request = objectMapper.readValue(is, ConversionRequest.class);
+            }
+
+            String rendered = templateService.renderTemplate(request.getResourceType(), request.getInputData());
+            StringWriter streamed = new StringWriter();
+            templateService.renderTemplate(request.getResourceType(), request.getInputData(), streamed);
+
+            assertEquals(withoutUtilities(rendered), withoutUtilities(streamed.toString()), example.getFilename());
+        }
+    }
+
+    @Test
+    void testSkeletonRenderMatchesInterpretedRender() throws IOException {
+        for (Resource example : new PathMatchingResourcePatternResolver().getResources("classpath:examples/*.json")) {
+            ConversionRequest request;
+            try (InputStream is = example.getInputStream()) {
+                request = objectMapper.readValue(is, ConversionRequest.class);
+            }
+
+            Map<String, Object> data = new HashMap<>(request.getInputData());
+            data.put("uuid", "00000000-0000-0000-0000-000000000000");
+            data.put("now", "2024-01-01T00:00:00Z");
+            String interpreted = templateRegistry.get(request.getResourceType()).template().render(data);
+            String rendered = templateService.renderTemplate(request.getResourceType(), request.getInputData());
+
+            assertEquals(withoutUtilities(interpreted), withoutUtilities(rendered), example.getFilename());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLazyInputRendersLikeMaterializedInput() throws IOException {
+        for (Resource example : new PathMatchingResourcePatternResolver().getResources("classpath:examples/*.json")) {
+            ConversionRequest request;
+            Map<String, Object> materialized;
+            try (InputStream is = example.getInputStream()) {
+                Map<String, Object> json = objectMapper.readValue(is, new TypeReference<>() {});
+                request = objectMapper.convertValue(json, ConversionRequest.class);
+                materialized = (Map<String, Object>) json.get("inputData");
+            }
+
+            assertInstanceOf(JsonObject.class, request.getInputData());
+            assertEquals(materialized, request.getInputData(), example.getFilename());
+            assertEquals(withoutUtilities(templateService.renderTemplate(request.getResourceType(), materialized)),
+                withoutUtilities(templateService.renderTemplate(request.getResourceType(), request.getInputData())),
+                example.getFilename());
+        }
+        // Wide enough for the indexed lookup, with nested values
+        StringBuilder wide = new StringBuilder("{\"resourceType\": \"Patient\", \"inputData\": {\"id\": \"p1\"");
+        for (int i = 0; i < 40; i++) {
+            wide.append(", \"field_").append(i).append("\": {\"value\": ").append(i * 1.5).append(", \"codes\": [\"c").append(i).append("\", null, true]}");
+        }
+        String json = wide.append("}}").toString();
+        Map<String, Object> input = objectMapper.readValue(json, ConversionRequest.class).getInputData();
+        Map<String, Object> expected = (Map<String, Object>) objectMapper.readValue(json, Map.class).get("inputData");
+        assertEquals(expected, input);
+        assertEquals(expected.get("field_39"), input.get("field_39"));
+        assertNull(input.get("field_40"));
+    }
+
+    @Test
+    void testTemplateVariablesDoNotChangeInput() throws IOException {
+        ConversionRequest request = objectMapper.readValue("""
+            {"resourceType": "Patient", "inputData": {"id": "p1", "family_name": "Doe", "uuid": "input-uuid"}}
+            """, ConversionRequest.class);
+        Map<String, Object> input = request.getInputData();
+
+        OverlayMap context = new OverlayMap(input);
+        context.put("uuid", "overlay-uuid");
+        context.put("now", "2024-01-01T00:00:00Z");
+        context.remove("family_name");
+
+        assertEquals(Map.of("id", "p1", "uuid", "overlay-uuid", "now", "2024-01-01T00:00:00Z"), context);
+        assertEquals(Map.of("id", "p1", "family_name", "Doe", "uuid", "input-uuid"), input);
+        assertThrows(UnsupportedOperationException.class, () -> input.put("id", "p2"));
+
+        templateService.renderTemplate("Patient", input);
+        assertEquals(3, input.size());
+    }
+
+    @Test
+    void testUtilitiesAreOnlyComputedForTemplatesThatReadThem(@TempDir Path templatesDir) throws IOException {
+        Files.writeString(templatesDir.resolve("patient.liquid"), "{\"resourceType\": \"Patient\", \"id\": \"{{ id }}\"}");
+        Files.writeString(templatesDir.resolve("observation.liquid"),
+            "{\"resourceType\": \"Observation\", \"id\": \"{{ id | default: uuid }}\", \"issued\": \"{{ now }}\"}");
+        TemplateParser parser = new TemplateParser.Builder().build();
+        TemplateRegistry registry = new TemplateRegistry(parser, new PathMatchingResourcePatternResolver());
+        ReflectionTestUtils.setField(registry, "templatesPath", templatesDir.toUri().toString());
+        ReflectionTestUtils.setField(registry, "checkInterval", Duration.ZERO);
+        registry.compileAll();
+        AtomicInteger calls = new AtomicInteger();
+        TemplateService service = new TemplateService(registry, parser, meterRegistry,
+            (template, input) -> "id-" + calls.incrementAndGet());
+
+        try {
+            assertEquals("{\"resourceType\": \"Patient\", \"id\": \"p1\"}", service.renderTemplate("Patient", Map.of("id", "p1")));
+            assertEquals(0, calls.get());
+            assertFalse(registry.get("Patient").skeleton().mayRead("now"));
+
+            String observation = service.renderTemplate("Observation", Map.of());
+            assertTrue(observation.contains("\"id\": \"id-1\""), observation);
+            assertFalse(observation.contains("\"issued\": \"\""), observation);
+            assertEquals(1, calls.get());
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    void testDoseQuantityCodeIsUcumCode() throws IOException {
+        ConversionRequest request;
+        try (InputStream is = new ClassPathResource("examples/medication-request-oral.json").getInputStream()) {
+            request = objectMapper.readValue(is, ConversionRequest.class);
+        }
+        Map<String, Object> data = new HashMap<>(request.getInputData());
+        data.put("dosage_unit", "milligrams");
+
+        String rendered = templateService.renderTemplate(request.getResourceType(), data);
+
+        assertTrue(rendered.replaceAll("\\s", "").contains("\"unit\":\"milligrams\",\"system\":\"http://unitsofmeasure.org\",\"code\":\"mg\""), rendered);
+    }
+
+    /** Masks the per-render uuid and now values. */
+    private static String withoutUtilities(String rendered) {
+        return rendered
+            .replaceAll("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}", "<uuid>")
+            .replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d+)?Z", "<now>");
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+            .tags("cache", "filtered-templates", "result", result)
+            .functionCounter()
+            .count();
+    }
+}
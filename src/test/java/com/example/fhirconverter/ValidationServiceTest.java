@@ -0,0 +1,115 @@
+package com.example.fhirconverter;
+
+import com.example.fhirconverter.model.ValidationResult;
+import com.example.fhirconverter.service.ValidationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "fhir.converter.validation.result-cache.enabled=true")
+class ValidationServiceTest {
+
+    @Autowired
+    private ValidationService validationService;
+
+    @Autowired
+    private FhirInstanceValidator fhirInstanceValidator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testPreloadedTypesAreValidatedWarm() {
+        // Pre-loading at startup took the cold validation of Patient
+        assertNotNull(validationTimer("cold", "Patient"));
+        long warmBefore = warmCount("Patient");
+
+        Patient patient = new Patient();
+        patient.setId("p1");
+        patient.setGender(Enumerations.AdministrativeGender.FEMALE);
+        patient.addName().setFamily("Doe").addGiven("Jane");
+        ValidationResult result = validationService.validate(patient);
+
+        assertTrue(result.isSuccessful(), () -> "Unexpected errors: " + result.getErrors());
+        assertEquals(warmBefore + 1, warmCount("Patient"));
+        assertEquals(1, validationTimer("cold", "Patient").count());
+    }
+
+    @Test
+    void testMissingRequiredElementsFailValidation() {
+        // Observation.status and Observation.code are mandatory
+        ValidationResult result = validationService.validate(new Observation());
+
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getErrors().stream().anyMatch(error -> error.contains("Observation.status")),
+            () -> "Errors: " + result.getErrors());
+        assertTrue(result.getMessages().containsAll(result.getErrors()));
+    }
+
+    @Test
+    void testUnchangedResourcesAreValidatedOnce() {
+        double hits = cacheGets("hit");
+        double misses = cacheGets("miss");
+        long validations = warmCount("Patient");
+
+        ValidationResult first = validationService.validate(patient("cached-1", "Roe"));
+        // Another instance with the same content is the same resource
+        ValidationResult second = validationService.validate(patient("cached-1", "Roe"));
+        validationService.validate(patient("cached-1", "Moe"));
+
+        assertSame(first, second);
+        assertEquals(hits + 1, cacheGets("hit"));
+        assertEquals(misses + 2, cacheGets("miss"));
+        assertEquals(validations + 2, warmCount("Patient"));
+    }
+
+    @Test
+    void testValidatorConfigurationChangeBypassesCachedResults() {
+        ValidationResult before = validationService.validate(patient("cached-2", "Poe"));
+        double misses = cacheGets("miss");
+
+        fhirInstanceValidator.setNoTerminologyChecks(true);
+        try {
+            ValidationResult after = validationService.validate(patient("cached-2", "Poe"));
+
+            assertNotSame(before, after);
+            assertEquals(misses + 1, cacheGets("miss"));
+        } finally {
+            fhirInstanceValidator.setNoTerminologyChecks(false);
+        }
+    }
+
+    private static Patient patient(String id, String family) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        patient.addName().setFamily(family).addGiven("Jane");
+        return patient;
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+            .tags("cache", "validation-results", "result", result)
+            .functionCounter()
+            .count();
+    }
+
+    private long warmCount(String resourceType) {
+        Timer timer = validationTimer("warm", resourceType);
+        return timer != null ? timer.count() : 0;
+    }
+
+    private Timer validationTimer(String phase, String resourceType) {
+        return meterRegistry.find("fhir.validation")
+            .tag("phase", phase)
+            .tag("resource.type", resourceType)
+            .timer();
+    }
+}